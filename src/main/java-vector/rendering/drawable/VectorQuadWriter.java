@@ -0,0 +1,226 @@
+package rendering.drawable;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+
+/**
+ * This class writes the packed vertices of staged quads many quads at a time using SIMD instructions (JDK Vector API).
+ * Corner positions, byte-swapped colors, and normalized texture coordinates are computed for as many quads per
+ * iteration as the widest vector the CPU supports has lanes (ex. eight with AVX2), reading each staged property with
+ * contiguous loads.
+ * Computed attributes are then interleaved into whole vertices and copied into memory in vector-sized blocks.
+ * Interleaving is done with plain array stores rather than scatters, since scatters are not native to AVX2.
+ * Any quads left over after the last full vector are written one at a time.
+ * This requires the `jdk.incubator.vector` module and little-endian native byte order; see `VertexFillMode`.
+ */
+public class VectorQuadWriter extends ScalarQuadWriter {
+
+    // FIELDS
+    /**
+     * Preferred float species of this CPU.
+     */
+    private static final VectorSpecies<Float> floatSpecies = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * Preferred integer species of this CPU; it has the same number of lanes as the float species.
+     */
+    private static final VectorSpecies<Integer> intSpecies = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Number of quads computed per iteration.
+     */
+    private static final int lanes = floatSpecies.length();
+
+    /**
+     * Total number of integers in each vertex.
+     */
+    private static final int vertexInts = vertexBytes / Integer.BYTES;
+
+    /**
+     * Total number of integers in the four vertices of each quad.
+     */
+    private static final int quadInts = 4 * vertexInts;
+
+    /**
+     * Raw bits of the left, right, top, and bottom coordinates of all computed quads, in that order, each section
+     * holding one entry per quad.
+     */
+    private final int[] edges;
+
+    /**
+     * Colors of all computed quads, byte-swapped so that red lands in the lowest address.
+     */
+    private final int[] swappedColors;
+
+    /**
+     * Texture coordinates of all computed quads, packed as 0xYYYYXXXX, with one section per corner each holding one
+     * entry per quad.
+     */
+    private final int[] packedTextureCoords;
+
+    /**
+     * Interleaved vertices of all computed quads, ready to be copied into memory.
+     */
+    private final int[] interleaved;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a VectorQuadWriter instance.
+     *
+     * @param capacity maximum number of quads that can be staged
+     */
+    public VectorQuadWriter(int capacity) {
+        super(capacity);
+        this.edges = new int[capacity * 4];
+        this.swappedColors = new int[capacity];
+        this.packedTextureCoords = new int[capacity * 4];
+        this.interleaved = new int[capacity * quadInts];
+    }
+
+
+    // METHODS
+    @Override
+    public void write(ByteBuffer vertices, int offset, int first, int last) {
+
+        int vectorEnd = first + (((last - first) / lanes) * lanes);
+
+        for (int i = first; i < vectorEnd; i += lanes) {
+            computeQuads(i);
+        }
+        interleave(first, vectorEnd);
+        copy(vertices, offset, first, vectorEnd);
+
+        for (int i = vectorEnd; i < last; i++) {
+            writeQuad(vertices, offset + (i * quadBytes), i);
+        }
+    }
+
+
+    /**
+     * Computes the attributes of one vector of staged quads.
+     *
+     * @param first index of first quad to compute
+     */
+    private void computeQuads(int first) {
+
+        // Edges.
+        FloatVector left = FloatVector.fromArray(floatSpecies, xs, first);
+        FloatVector top = FloatVector.fromArray(floatSpecies, ys, first);
+        FloatVector right = left.add(FloatVector.fromArray(floatSpecies, widths, first));
+        FloatVector bottom = top.add(FloatVector.fromArray(floatSpecies, heights, first));
+        left.reinterpretAsInts().intoArray(edges, first);
+        right.reinterpretAsInts().intoArray(edges, capacity + first);
+        top.reinterpretAsInts().intoArray(edges, 2 * capacity + first);
+        bottom.reinterpretAsInts().intoArray(edges, 3 * capacity + first);
+
+        // Color; reversing bytes makes red land in the lowest address.
+        IntVector rgba = IntVector.fromArray(intSpecies, colors, first);
+        rgba.lanewise(LSHL, 24)
+                .or(rgba.and(0xFF00).lanewise(LSHL, 8))
+                .or(rgba.lanewise(LSHR, 8).and(0xFF00))
+                .or(rgba.lanewise(LSHR, 24))
+                .intoArray(swappedColors, first);
+
+        // Texture coordinates.
+        for (int corner = 0; corner < 4; corner++) {
+            int index = corner * capacity + first;
+            IntVector u = unorm16(FloatVector.fromArray(floatSpecies, us, index));
+            IntVector v = unorm16(FloatVector.fromArray(floatSpecies, vs, index));
+            u.or(v.lanewise(LSHL, 16)).intoArray(packedTextureCoords, index);
+        }
+    }
+
+
+    /**
+     * Interleaves computed attributes into whole vertices.
+     * Vertices are added clockwise, starting from top-right, exactly as they are by the scalar writer.
+     *
+     * @param first index of first quad to interleave (inclusive)
+     * @param last index of last quad to interleave (exclusive)
+     */
+    private void interleave(int first, int last) {
+
+        int right = capacity;
+        int top = 2 * capacity;
+        int bottom = 3 * capacity;
+
+        for (int i = first; i < last; i++) {
+
+            int at = i * quadInts;
+            int color = swappedColors[i];
+            int layer = textureLayers[i] & 0xFF;                                                                        // Padding after the texture layer byte is zeroed.
+
+            putVertex(at, edges[right + i], edges[bottom + i], color, packedTextureCoords[i], layer);
+            putVertex(at + vertexInts, edges[right + i], edges[top + i], color, packedTextureCoords[capacity + i],
+                    layer);
+            putVertex(at + 2 * vertexInts, edges[i], edges[top + i], color, packedTextureCoords[2 * capacity + i],
+                    layer);
+            putVertex(at + 3 * vertexInts, edges[i], edges[bottom + i], color, packedTextureCoords[3 * capacity + i],
+                    layer);
+        }
+    }
+
+
+    /**
+     * Stores a single interleaved vertex.
+     *
+     * @param at index of the first integer of the vertex
+     * @param x raw bits of x-coordinate
+     * @param y raw bits of y-coordinate
+     * @param color byte-swapped color
+     * @param textureCoords texture coordinates packed as 0xYYYYXXXX
+     * @param layer texture layer plus one; zero means no texture
+     */
+    private void putVertex(int at, int x, int y, int color, int textureCoords, int layer) {
+
+        interleaved[at] = x;
+        interleaved[at + 1] = y;
+        interleaved[at + 2] = color;
+        interleaved[at + 3] = textureCoords;
+        interleaved[at + 4] = layer;
+    }
+
+
+    /**
+     * Copies interleaved vertices into memory in vector-sized blocks.
+     *
+     * @param vertices memory to write into
+     * @param offset offset (in bytes) of the first vertex of quad 0 within the memory
+     * @param first index of first quad to copy (inclusive)
+     * @param last index of last quad to copy (exclusive)
+     */
+    private void copy(ByteBuffer vertices, int offset, int first, int last) {
+
+        int start = first * quadInts;
+        int end = last * quadInts;                                                                                      // A whole number of vectors, since whole vectors of quads are computed.
+
+        for (int i = start; i < end; i += lanes) {
+            IntVector.fromArray(intSpecies, interleaved, i)
+                    .intoByteBuffer(vertices, offset + (i * Integer.BYTES), ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+
+    /**
+     * Converts values from zero to one into normalized unsigned shorts.
+     * Rather than converting floats to integers (which is not a native vector instruction on every CPU), each scaled
+     * value is added to 2^23 so that its integer part lands in the low bits of the mantissa.
+     * This rounds to the nearest integer like `PackedVertex.unorm16()`, though values within rounding error of a half
+     * may land one unit (1/65535 of a texture) apart, which is far below a texel.
+     *
+     * @param values values (normalized from zero to one)
+     * @return normalized unsigned shorts, in the low bits of each lane
+     */
+    private static IntVector unorm16(FloatVector values) {
+
+        return values.mul(65535.0f).add(8388608.0f).reinterpretAsInts().and(0x7FFFFF);
+    }
+}
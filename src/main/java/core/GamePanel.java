@@ -1,13 +1,17 @@
 package core;
 
 import static org.lwjgl.glfw.GLFW.*;
-import org.joml.Vector3f;
-import org.joml.Vector4f;
 import rendering.*;
 import org.joml.Vector2f;
+import rendering.buffer.UploadMode;
 import rendering.drawable.Drawable;
+import rendering.drawable.QuadMode;
+import rendering.drawable.VertexFillMode;
+import rendering.font.FontAtlasMode;
 import utility.AssetPool;
+import utility.UtilityTool;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 
 /**
@@ -55,6 +59,61 @@ public class GamePanel  {
     private final int nativeScreenHeight = nativeTileSize * maxScreenRow;
 
 
+    // RENDER SETTINGS
+    /**
+     * Way batches of drawables send quads to the GPU.
+     * Regular batches upload four complete vertices per drawable, while instanced and pulled batches upload one record
+     * per drawable and build the four corners of each quad in the vertex shader.
+     * It can be overridden at startup with the `render.quads` system property (ex. `-Drender.quads=pulled`).
+     */
+    private final QuadMode quadMode = UtilityTool.parseEnum(QuadMode.class, System.getProperty("render.quads"),
+            QuadMode.VERTEX);
+
+    /**
+     * Strategy used to upload batch vertices to the GPU.
+     * The fastest strategy varies between drivers, so it can be overridden at startup with the `render.upload` system
+     * property (ex. `-Drender.upload=orphan`).
+     */
+    private final UploadMode uploadMode =
+            UtilityTool.parseEnum(UploadMode.class, System.getProperty("render.upload"), UploadMode.PERSISTENT);
+
+    /**
+     * Way batches of drawables write the vertices of their quads.
+     * Vectorized writing processes many quads per iteration, but needs the JVM to be started with
+     * `--add-modules jdk.incubator.vector`, so it is only the default when that module is present.
+     * It can be overridden at startup with the `render.fill` system property (ex. `-Drender.fill=vector`).
+     */
+    private final VertexFillMode vertexFillMode = UtilityTool.parseEnum(VertexFillMode.class,
+            System.getProperty("render.fill"),
+            VertexFillMode.isVectorSupported() ? VertexFillMode.VECTOR : VertexFillMode.SCALAR);
+
+    /**
+     * Minimum number of batched quads in a frame before their vertices are filled in parallel across all cores.
+     * Below this, the cost of dispatching work to other threads outweighs the benefit, so vertices are filled on the
+     * render thread.
+     * Set to `Integer.MAX_VALUE` to always fill on the render thread.
+     */
+    private final int parallelFillThreshold = 8192;
+
+    /**
+     * Way fonts store their glyphs in their atlas textures.
+     * Signed distance field atlases are far smaller and draw crisp text at any scale, while bitmap atlases reproduce
+     * the rasterized glyphs exactly at native size.
+     * It can be overridden at startup with the `render.fontAtlas` system property (ex. `-Drender.fontAtlas=bitmap`).
+     */
+    private final FontAtlasMode fontAtlasMode =
+            UtilityTool.parseEnum(FontAtlasMode.class, System.getProperty("render.fontAtlas"), FontAtlasMode.SDF);
+
+    /**
+     * Directory that finished font atlases are cached in between launches, so that fonts are only rasterized the first
+     * time they are used.
+     * It can be overridden at startup with the `render.fontCache` system property (ex.
+     * `-Drender.fontCache=/tmp/fonts`); set the property to an empty value to disable caching.
+     */
+    private final String fontCacheDirectory = System.getProperty("render.fontCache",
+            Path.of(System.getProperty("user.home"), ".shaders", "cache", "fonts").toString());
+
+
     // GAME OBJECTS
     /**
      * List to store ame objects (i.e., drawable objects).
@@ -67,6 +126,18 @@ public class GamePanel  {
     private double motionTracker = 0;
 
 
+    // FONTS
+    /**
+     * Font ID of regular Arimo font.
+     */
+    private int arimo;
+
+    /**
+     * Font ID of bold Arimo font.
+     */
+    private int arimoBold;
+
+
     // CONSTRUCTOR
     /**
      * Constructs a GamePanel instance.
@@ -93,6 +164,8 @@ public class GamePanel  {
 
         // Shaders.
         AssetPool.getShader("/shaders/default.glsl");
+        AssetPool.getShader("/shaders/instanced.glsl");
+        AssetPool.getShader("/shaders/pulled.glsl");
         AssetPool.getShader("/shaders/rounded.glsl");
         AssetPool.getShader("/shaders/font.glsl");
 
@@ -104,6 +177,10 @@ public class GamePanel  {
         int[] widths = new int[] {62, 32};
         int[] heights = new int[] {90, 70};
         AssetPool.addSpritesheet(new Spritesheet(AssetPool.getTexture(filePath), 2, widths, heights, 2));
+
+        // Fonts.
+        arimo = renderer.getFontId("Arimo");
+        arimoBold = renderer.getFontId("Arimo Bold");
     }
 
 
@@ -127,6 +204,12 @@ public class GamePanel  {
                 new Transform(new Vector2f(32, 40), new Vector2f(sprite.getNativeWidth(), sprite.getNativeHeight())),
                 sprite);
         gameObjects.add(gameObject2);
+
+        // Register game objects with renderer.
+        // Their vertices are retained on the GPU and only rewritten when they change.
+        for (Drawable gameObject : gameObjects) {
+            renderer.registerDrawable(gameObject);
+        }
     }
 
 
@@ -154,23 +237,16 @@ public class GamePanel  {
      */
     public void render() {
 
-        // Add game objects to render pipeline.
-        for (Drawable gameObject : gameObjects) {
-            renderer.addDrawable(gameObject);
-        }
-
         // Add round rectangle to render pipeline.
-        renderer.addRoundRectangle(new Vector4f(0, 191, 255, 180),
-                new Transform(new Vector2f(5, 300), new Vector2f(120, 60)), 20);
+        renderer.addRoundRectangle(5, 300, 120, 60, 20, 0x00BFFFB4);
 
         // Add square rectangle to render pipeline.
-        renderer.addRectangle(new Vector4f(0, 255, 0, 100),
-                new Transform(new Vector2f(150, 90), new Vector2f(200, 75)));
+        renderer.addRectangle(150, 90, 200, 75, 0x00FF0064);
 
         // Add text to render pipeline.
-        renderer.addString("Hello, World! g p y", 0, 0, 0.5f, new Vector3f(0, 0, 0), "Arimo");
-        renderer.addString("Have a great day?", 0, 90, 0.3f, new Vector3f(0, 0, 0), "Arimo Bold");
-        renderer.addString("Yes indeed.", 20, 130, 0.5f, new Vector3f(200, 143, 15), "Arimo");
+        renderer.addString("Hello, World! g p y", 0, 0, 0.5f, 0x000000FF, arimo);
+        renderer.addString("Have a great day?", 0, 90, 0.3f, 0x000000FF, arimoBold);
+        renderer.addString("Yes indeed.", 20, 130, 0.5f, 0xC88F0FFF, arimo);
 
         // Render everything in pipeline.
         renderer.render();
@@ -181,4 +257,28 @@ public class GamePanel  {
     public SystemCamera getSystemCamera() {
         return systemCamera;
     }
+
+    public QuadMode getQuadMode() {
+        return quadMode;
+    }
+
+    public UploadMode getUploadMode() {
+        return uploadMode;
+    }
+
+    public VertexFillMode getVertexFillMode() {
+        return vertexFillMode;
+    }
+
+    public FontAtlasMode getFontAtlasMode() {
+        return fontAtlasMode;
+    }
+
+    public String getFontCacheDirectory() {
+        return fontCacheDirectory;
+    }
+
+    public int getParallelFillThreshold() {
+        return parallelFillThreshold;
+    }
 }
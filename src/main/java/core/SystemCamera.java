@@ -1,7 +1,6 @@
 package core;
 
 import org.joml.Matrix4f;
-import org.joml.Vector3f;
 import org.joml.Vector2f;
 
 /**
@@ -112,12 +111,11 @@ public class SystemCamera {
      */
     public void adjustView() {
 
-        Vector3f cameraFront = new Vector3f(0.0f, 0.0f, -1.0f);                                                         // Camera pointing in -1 of the z direction.
-        Vector3f cameraUp = new Vector3f(0.0f, 1.0f, 0.0f);
-        viewMatrix.identity();                                                                                          // Modifies the view matrix directly
-        viewMatrix.lookAt(new Vector3f(positionMatrix.x, positionMatrix.y, 20.0f),
-                cameraFront.add(positionMatrix.x, positionMatrix.y, 0.0f),
-                cameraUp);                                                                                              // Modifies the view matrix directly.
+        float x = positionMatrix.x;
+        float y = positionMatrix.y;
+        viewMatrix.setLookAt(x, y, 20.0f,                                                                               // Eye; camera pointing in -1 of the z direction.
+                x, y, -1.0f,                                                                                            // Center.
+                0.0f, 1.0f, 0.0f);                                                                                      // Up; modifies the view matrix directly without allocating vectors.
     }
 
 
@@ -4,6 +4,7 @@ import org.lwjgl.BufferUtils;
 import org.lwjgl.glfw.GLFWImage;
 import org.lwjgl.glfw.GLFWWindowSizeCallback;
 import org.lwjgl.opengl.GL;
+import rendering.GLState;
 import utility.UtilityTool;
 
 import java.nio.ByteBuffer;
@@ -39,6 +40,11 @@ public class Window {
      */
     private final int frameRateCap = 60;
 
+    /**
+     * Time (seconds) between updates of the frame statistics shown in the window title.
+     */
+    private final double statsInterval = 1.0;
+
 
     // WINDOW PROPERTIES
     /**
@@ -133,8 +139,8 @@ public class Window {
         GL.createCapabilities();
 
         // Enable blending (alpha values).
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+        GLState.setBlend(true);
+        GLState.setBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
     }
 
 
@@ -159,6 +165,8 @@ public class Window {
         double startFrameTime = glfwGetTime();                                                                          // Time at the start of a frame.
         double endFrameTime = 0;                                                                                        // Time at the end of a frame.
         double dt = 0;                                                                                                  // Time between each rendered frame (frame pacing).
+        double statsTime = 0;                                                                                           // Time elapsed since frame statistics were last shown.
+        int statsFrames = 0;                                                                                            // Frames rendered since frame statistics were last shown.
 
         // Core game loop.
         while (!glfwWindowShouldClose(glfwWindow)) {
@@ -183,7 +191,18 @@ public class Window {
             // Iterate loop time + limit frame rate if needed.
             while (glfwGetTime() < (endLoopTime + (1.0 / frameRateCap))) {}                                             // Wait if frame rate cap is lower than refresh rate from v-sync.
             endLoopTime += 1.0 / frameRateCap;                                                                          // Time at the end of this loop.
-//            System.out.println(1.0 / dt + " FPS");
+
+            // Show frame statistics.
+            statsTime += dt;
+            statsFrames++;
+            if (statsTime >= statsInterval) {
+                int numRedundantCalls = GLState.getNumRedundantCallsLastFrame();
+                int numCalls = GLState.getNumCallsLastFrame() + numRedundantCalls;
+                glfwSetWindowTitle(glfwWindow, title + " | " + Math.round(statsFrames / statsTime) + " FPS | "
+                        + numRedundantCalls + " of " + numCalls + " GL state calls skipped");
+                statsTime = 0;
+                statsFrames = 0;
+            }
         }
 
         // Free memory.
@@ -0,0 +1,165 @@
+package rendering;
+
+import java.util.Arrays;
+
+/**
+ * This class holds transient render data written during a single frame, such as staged text.
+ * Data is bump-allocated into primitive arrays and all of it is released at once by `reset()`, which takes constant
+ * time regardless of how much was written.
+ * Storage is retained and reused every frame, so writing to an arena does not allocate once it is large enough.
+ * Offsets into an arena are only valid until `reset()` is next called.
+ */
+public class FrameArena {
+
+    // FIELDS
+    /**
+     * 32-bit words written this frame.
+     * Floats are stored by their raw bits.
+     */
+    private int[] words;
+
+    /**
+     * Number of words allocated since the last reset.
+     */
+    private int numWords;
+
+    /**
+     * Characters written this frame, one string after another.
+     */
+    private char[] characters;
+
+    /**
+     * Number of characters written since the last reset.
+     */
+    private int numCharacters;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a FrameArena instance.
+     *
+     * @param initialWords number of words that can be allocated each frame before growing
+     * @param initialCharacters number of characters that can be written each frame before growing
+     */
+    public FrameArena(int initialWords, int initialCharacters) {
+        this.words = new int[Math.max(16, initialWords)];
+        this.characters = new char[Math.max(16, initialCharacters)];
+    }
+
+
+    // METHODS
+    /**
+     * Allocates a block of words.
+     * Allocated words are not zeroed, so every word must be written before it is read.
+     *
+     * @param count number of words to allocate
+     * @return offset of the first word of the block
+     */
+    public int allocate(int count) {
+
+        if (numWords + count > words.length) {
+
+            words = Arrays.copyOf(words, Math.max(numWords + count, words.length * 2));
+        }
+        int offset = numWords;
+        numWords += count;
+        return offset;
+    }
+
+
+    /**
+     * Copies a string of characters into this arena.
+     *
+     * @param text text to copy
+     * @return offset of the first character copied
+     */
+    public int putCharacters(CharSequence text) {
+
+        int length = text.length();
+
+        if (numCharacters + length > characters.length) {
+
+            characters = Arrays.copyOf(characters, Math.max(numCharacters + length, characters.length * 2));
+        }
+        int offset = numCharacters;
+
+        for (int i = 0; i < length; i++) {
+
+            characters[numCharacters++] = text.charAt(i);
+        }
+        return offset;
+    }
+
+
+    /**
+     * Writes an integer to an allocated word.
+     *
+     * @param offset offset of word
+     * @param value value to write
+     */
+    public void putInt(int offset, int value) {
+
+        words[offset] = value;
+    }
+
+
+    /**
+     * Writes a float to an allocated word.
+     *
+     * @param offset offset of word
+     * @param value value to write
+     */
+    public void putFloat(int offset, float value) {
+
+        words[offset] = Float.floatToRawIntBits(value);
+    }
+
+
+    /**
+     * Reads an integer from an allocated word.
+     *
+     * @param offset offset of word
+     * @return value
+     */
+    public int getInt(int offset) {
+
+        return words[offset];
+    }
+
+
+    /**
+     * Reads a float from an allocated word.
+     *
+     * @param offset offset of word
+     * @return value
+     */
+    public float getFloat(int offset) {
+
+        return Float.intBitsToFloat(words[offset]);
+    }
+
+
+    /**
+     * Releases everything written to this arena, invalidating all offsets into it.
+     * Nothing is zeroed, so this takes constant time; storage is retained for the next frame.
+     */
+    public void reset() {
+
+        numWords = 0;
+        numCharacters = 0;
+    }
+
+
+    // GETTERS
+    public char[] getCharacters() {
+        return characters;
+    }
+
+    public int getNumWords() {
+        return numWords;
+    }
+
+    public int getNumCharacters() {
+        return numCharacters;
+    }
+}
@@ -0,0 +1,436 @@
+package rendering;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glUseProgram;
+import static org.lwjgl.opengl.GL30.GL_TEXTURE_2D_ARRAY;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
+import static org.lwjgl.opengl.GL31.GL_TEXTURE_BUFFER;
+import static org.lwjgl.opengl.GL40.GL_DRAW_INDIRECT_BUFFER;
+
+/**
+ * This class tracks the GL state most often changed while rendering so that calls which would not change it are
+ * skipped.
+ * This covers the current shader program, vertex array object, buffer bindings, active texture unit, texture bindings
+ * of each unit, and blend state.
+ * All code binding any of these must do so through this class, otherwise the tracked state no longer matches the
+ * context; code that cannot must call `invalidate()` afterwards.
+ * Since redundant binds are skipped, nothing needs to be unbound after drawing; whatever draws next binds what it
+ * needs.
+ * The number of calls issued and skipped is counted each frame.
+ */
+public class GLState {
+
+    // FIELDS
+    /**
+     * Flag stating that the value of tracked state is unknown, so the next call setting it is always issued.
+     */
+    private static final int unknown = -1;
+
+    /**
+     * Number of texture units whose bindings are tracked; binds to higher units are always issued.
+     */
+    private static final int numTrackedUnits = 16;
+
+    /**
+     * Texture targets whose bindings are tracked on each unit.
+     */
+    private static final int[] trackedTextureTargets = {GL_TEXTURE_2D, GL_TEXTURE_2D_ARRAY, GL_TEXTURE_BUFFER};
+
+    /**
+     * Shader program in use.
+     */
+    private static int program = unknown;
+
+    /**
+     * Vertex array object bound.
+     */
+    private static int vertexArray = unknown;
+
+    /**
+     * Buffer bound to GL_ARRAY_BUFFER.
+     */
+    private static int arrayBuffer = unknown;
+
+    /**
+     * Buffer bound to GL_ELEMENT_ARRAY_BUFFER.
+     * This binding is part of the bound vertex array object, so it becomes unknown whenever the vertex array object
+     * changes.
+     */
+    private static int elementBuffer = unknown;
+
+    /**
+     * Buffer bound to GL_DRAW_INDIRECT_BUFFER.
+     */
+    private static int drawIndirectBuffer = unknown;
+
+    /**
+     * Active texture unit (0 for GL_TEXTURE0, 1 for GL_TEXTURE1, etc.).
+     */
+    private static int activeUnit = unknown;
+
+    /**
+     * Textures bound to each tracked unit, with one section per tracked target each holding one entry per unit.
+     */
+    private static final int[] textures = new int[trackedTextureTargets.length * numTrackedUnits];
+
+    /**
+     * Whether blending is enabled (1), disabled (0), or unknown.
+     */
+    private static int blend = unknown;
+
+    /**
+     * Source blend factor.
+     */
+    private static int blendSource = unknown;
+
+    /**
+     * Destination blend factor.
+     */
+    private static int blendDestination = unknown;
+
+    /**
+     * Number of state-changing calls issued thus far this frame.
+     */
+    private static int numCalls;
+
+    /**
+     * Number of calls skipped thus far this frame since they would not have changed state.
+     */
+    private static int numRedundantCalls;
+
+    /**
+     * Number of state-changing calls issued last frame.
+     */
+    private static int numCallsLastFrame;
+
+    /**
+     * Number of calls skipped last frame since they would not have changed state.
+     */
+    private static int numRedundantCallsLastFrame;
+
+    static {
+        Arrays.fill(textures, unknown);
+    }
+
+
+    // CONSTRUCTOR
+    /**
+     * Prevents instantiation of this class.
+     */
+    private GLState() {}
+
+
+    // METHODS
+    /**
+     * Uses a shader program if not already in use.
+     *
+     * @param programId shader program ID (0 to use none)
+     */
+    public static void useProgram(int programId) {
+
+        if (program == programId) {
+
+            numRedundantCalls++;
+            return;
+        }
+        glUseProgram(programId);
+        program = programId;
+        numCalls++;
+    }
+
+
+    /**
+     * Binds a vertex array object if not already bound.
+     *
+     * @param vaoId vertex array object ID (0 to bind none)
+     */
+    public static void bindVertexArray(int vaoId) {
+
+        if (vertexArray == vaoId) {
+
+            numRedundantCalls++;
+            return;
+        }
+        glBindVertexArray(vaoId);
+        vertexArray = vaoId;
+        elementBuffer = unknown;                                                                                        // Each vertex array object holds its own element buffer binding.
+        numCalls++;
+    }
+
+
+    /**
+     * Binds a buffer to a target if not already bound.
+     * Binds to targets other than GL_ARRAY_BUFFER, GL_ELEMENT_ARRAY_BUFFER, and GL_DRAW_INDIRECT_BUFFER are always
+     * issued.
+     *
+     * @param target buffer target (ex. GL_ARRAY_BUFFER)
+     * @param bufferId buffer ID (0 to bind none)
+     */
+    public static void bindBuffer(int target, int bufferId) {
+
+        switch (target) {
+            case GL_ARRAY_BUFFER:
+                if (arrayBuffer == bufferId) {
+                    numRedundantCalls++;
+                    return;
+                }
+                arrayBuffer = bufferId;
+                break;
+            case GL_ELEMENT_ARRAY_BUFFER:
+                if (elementBuffer == bufferId) {
+                    numRedundantCalls++;
+                    return;
+                }
+                elementBuffer = bufferId;
+                break;
+            case GL_DRAW_INDIRECT_BUFFER:
+                if (drawIndirectBuffer == bufferId) {
+                    numRedundantCalls++;
+                    return;
+                }
+                drawIndirectBuffer = bufferId;
+                break;
+        }
+        glBindBuffer(target, bufferId);
+        numCalls++;
+    }
+
+
+    /**
+     * Makes a texture unit active if not already active.
+     *
+     * @param unit texture unit (0 for GL_TEXTURE0, 1 for GL_TEXTURE1, etc.)
+     */
+    public static void activeTexture(int unit) {
+
+        if (activeUnit == unit) {
+
+            numRedundantCalls++;
+            return;
+        }
+        glActiveTexture(GL_TEXTURE0 + unit);
+        activeUnit = unit;
+        numCalls++;
+    }
+
+
+    /**
+     * Binds a texture to a target of a texture unit if not already bound, making the unit active first.
+     *
+     * @param unit texture unit (0 for GL_TEXTURE0, 1 for GL_TEXTURE1, etc.)
+     * @param target texture target (ex. GL_TEXTURE_2D)
+     * @param textureId texture ID (0 to bind none)
+     */
+    public static void bindTexture(int unit, int target, int textureId) {
+
+        int slot = getTextureSlot(unit, target);
+
+        if ((slot != unknown) && (textures[slot] == textureId)) {
+
+            numRedundantCalls++;
+            return;
+        }
+        activeTexture(unit);
+        glBindTexture(target, textureId);
+        numCalls++;
+
+        if (slot != unknown) {
+
+            textures[slot] = textureId;
+        }
+    }
+
+
+    /**
+     * Binds a texture to a target of whichever texture unit is active if not already bound.
+     * This is meant for uploading textures, where the unit does not matter.
+     *
+     * @param target texture target (ex. GL_TEXTURE_2D)
+     * @param textureId texture ID (0 to bind none)
+     */
+    public static void bindTexture(int target, int textureId) {
+
+        bindTexture((activeUnit == unknown) ? 0 : activeUnit, target, textureId);
+    }
+
+
+    /**
+     * Enables or disables blending if not already in that state.
+     *
+     * @param enabled whether to enable blending (true) or disable it (false)
+     */
+    public static void setBlend(boolean enabled) {
+
+        int value = enabled ? 1 : 0;
+
+        if (blend == value) {
+
+            numRedundantCalls++;
+            return;
+        }
+
+        if (enabled) {
+
+            glEnable(GL_BLEND);
+        } else {
+
+            glDisable(GL_BLEND);
+        }
+        blend = value;
+        numCalls++;
+    }
+
+
+    /**
+     * Sets blend factors if not already set.
+     *
+     * @param source source blend factor (ex. GL_ONE)
+     * @param destination destination blend factor (ex. GL_ONE_MINUS_SRC_ALPHA)
+     */
+    public static void setBlendFunc(int source, int destination) {
+
+        if ((blendSource == source) && (blendDestination == destination)) {
+
+            numRedundantCalls++;
+            return;
+        }
+        glBlendFunc(source, destination);
+        blendSource = source;
+        blendDestination = destination;
+        numCalls++;
+    }
+
+
+    /**
+     * Deletes a buffer.
+     * Deleting a bound buffer unbinds it, so tracked bindings of it are reset to nothing.
+     *
+     * @param bufferId buffer ID
+     */
+    public static void deleteBuffer(int bufferId) {
+
+        glDeleteBuffers(bufferId);
+        if (arrayBuffer == bufferId) {
+            arrayBuffer = 0;
+        }
+        if (elementBuffer == bufferId) {
+            elementBuffer = 0;
+        }
+        if (drawIndirectBuffer == bufferId) {
+            drawIndirectBuffer = 0;
+        }
+    }
+
+
+    /**
+     * Deletes a texture.
+     * Deleting a bound texture unbinds it from every unit, so tracked bindings of it are reset to nothing.
+     *
+     * @param textureId texture ID
+     */
+    public static void deleteTexture(int textureId) {
+
+        glDeleteTextures(textureId);
+
+        for (int i = 0; i < textures.length; i++) {
+
+            if (textures[i] == textureId) {
+
+                textures[i] = 0;
+            }
+        }
+    }
+
+
+    /**
+     * Deletes a vertex array object.
+     * Deleting the bound vertex array object unbinds it, so the tracked binding is reset to nothing.
+     *
+     * @param vaoId vertex array object ID
+     */
+    public static void deleteVertexArray(int vaoId) {
+
+        glDeleteVertexArrays(vaoId);
+        if (vertexArray == vaoId) {
+            vertexArray = 0;
+            elementBuffer = 0;
+        }
+    }
+
+
+    /**
+     * Forgets all tracked state, so the next call setting each is always issued.
+     * This must be called after any code changes tracked state without going through this class.
+     */
+    public static void invalidate() {
+
+        program = unknown;
+        vertexArray = unknown;
+        arrayBuffer = unknown;
+        elementBuffer = unknown;
+        drawIndirectBuffer = unknown;
+        activeUnit = unknown;
+        Arrays.fill(textures, unknown);
+        blend = unknown;
+        blendSource = unknown;
+        blendDestination = unknown;
+    }
+
+
+    /**
+     * Records the number of calls issued and skipped this frame, then resets both for the next frame.
+     * This should be called once at the end of each frame.
+     */
+    public static void endFrame() {
+
+        numCallsLastFrame = numCalls;
+        numRedundantCallsLastFrame = numRedundantCalls;
+        numCalls = 0;
+        numRedundantCalls = 0;
+    }
+
+
+    /**
+     * Finds where the binding of a texture target of a texture unit is tracked.
+     *
+     * @param unit texture unit
+     * @param target texture target
+     * @return index in the array of tracked texture bindings, or -1 if the binding is not tracked
+     */
+    private static int getTextureSlot(int unit, int target) {
+
+        if ((unit < 0) || (unit >= numTrackedUnits)) {
+
+            return unknown;
+        }
+
+        for (int i = 0; i < trackedTextureTargets.length; i++) {
+
+            if (trackedTextureTargets[i] == target) {
+
+                return i * numTrackedUnits + unit;
+            }
+        }
+        return unknown;
+    }
+
+
+    // GETTERS
+    public static int getProgram() {
+        return program;
+    }
+
+    public static int getNumCallsLastFrame() {
+        return numCallsLastFrame;
+    }
+
+    public static int getNumRedundantCallsLastFrame() {
+        return numRedundantCallsLastFrame;
+    }
+}
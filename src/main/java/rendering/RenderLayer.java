@@ -0,0 +1,31 @@
+package rendering;
+
+/**
+ * This enum defines the layers that render commands can be submitted on.
+ * Layers are rendered in the order they are declared, so everything on a layer appears above everything on the layers
+ * before it.
+ * Within a layer, commands are rendered in the order they were submitted, regardless of whether they are drawables,
+ * rectangles, or text.
+ */
+public enum RenderLayer {
+
+    /**
+     * Game world (ex. tiles, entities).
+     */
+    WORLD,
+
+    /**
+     * Effects drawn over the game world (ex. particles, lighting).
+     */
+    EFFECTS,
+
+    /**
+     * User interface (ex. menus, dialogue, HUD).
+     */
+    UI,
+
+    /**
+     * Anything that must appear above everything else (ex. transitions, debug information).
+     */
+    OVERLAY
+}
@@ -0,0 +1,203 @@
+package rendering;
+
+import java.util.Arrays;
+
+/**
+ * This class stores render commands submitted during a frame, each on a render layer and of a material.
+ * Sorting orders commands by layer while keeping commands on the same layer in the order they were submitted, so
+ * contiguous commands of the same material can be rendered together without changing what appears above what.
+ */
+public class RenderQueue {
+
+    /*
+     * Command
+     * =======
+     * Layer            Material                        Payload
+     * RenderLayer      int (ex. font of a string)      int (ex. index into a list of drawables)
+     *
+     * Commands are ordered by layer first, then by submission order.
+     * Materials are never sorted by; commands that can be rendered together only merge when contiguous.
+     */
+
+    // FIELDS
+    /**
+     * All render layers, indexed by ordinal.
+     */
+    private static final RenderLayer[] allLayers = RenderLayer.values();
+
+    /**
+     * Number of render layers, and therefore buckets in the sort.
+     */
+    private static final int numLayers = allLayers.length;
+
+    /**
+     * Layers (ordinals) of submitted commands.
+     */
+    private byte[] layers;
+
+    /**
+     * Materials of submitted commands, parallel to the layers.
+     */
+    private int[] materials;
+
+    /**
+     * Payloads of submitted commands, parallel to the layers.
+     */
+    private int[] payloads;
+
+    /**
+     * Scratch space for layers while sorting.
+     */
+    private byte[] scratchLayers;
+
+    /**
+     * Scratch space for materials while sorting.
+     */
+    private int[] scratchMaterials;
+
+    /**
+     * Scratch space for payloads while sorting.
+     */
+    private int[] scratchPayloads;
+
+    /**
+     * Number of commands submitted on each layer thus far.
+     */
+    private final int[] layerCounts = new int[numLayers];
+
+    /**
+     * Next position of each layer while sorting.
+     */
+    private final int[] layerPositions = new int[numLayers];
+
+    /**
+     * Number of commands submitted thus far.
+     */
+    private int size;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a RenderQueue instance.
+     *
+     * @param initialCapacity number of commands that can be submitted before the queue needs to grow
+     */
+    public RenderQueue(int initialCapacity) {
+        this.layers = new byte[initialCapacity];
+        this.materials = new int[initialCapacity];
+        this.payloads = new int[initialCapacity];
+        this.scratchLayers = new byte[initialCapacity];
+        this.scratchMaterials = new int[initialCapacity];
+        this.scratchPayloads = new int[initialCapacity];
+    }
+
+
+    // METHODS
+    /**
+     * Submits a command to this queue.
+     * Commands submitted on the same layer keep their submission order when sorted.
+     *
+     * @param layer layer to render command on
+     * @param material material of command; contiguous commands of the same material may be rendered together
+     * @param payload command payload
+     */
+    public void submit(RenderLayer layer, int material, int payload) {
+
+        if (size == layers.length) {
+
+            grow();
+        }
+        layers[size] = (byte)layer.ordinal();
+        materials[size] = material;
+        payloads[size] = payload;
+        layerCounts[layer.ordinal()]++;
+        size++;
+    }
+
+
+    /**
+     * Sorts all submitted commands by layer using a single stable counting sort pass.
+     * Commands are submitted in order, so this is all that is needed to order them by layer, then submission order.
+     * This runs in time proportional to the number of commands, and the pass is skipped entirely if every command is
+     * on the same layer.
+     */
+    public void sort() {
+
+        if ((size < 2) || (layerCounts[layers[0]] == size)) {
+
+            return;
+        }
+
+        // Convert layer counts into starting positions.
+        int position = 0;
+        for (int layer = 0; layer < numLayers; layer++) {
+
+            layerPositions[layer] = position;
+            position += layerCounts[layer];
+        }
+
+        // Scatter commands into scratch space.
+        for (int i = 0; i < size; i++) {
+
+            int target = layerPositions[layers[i]]++;
+            scratchLayers[target] = layers[i];
+            scratchMaterials[target] = materials[i];
+            scratchPayloads[target] = payloads[i];
+        }
+
+        // Swap scratch space with sorted space.
+        byte[] tempLayers = layers;
+        layers = scratchLayers;
+        scratchLayers = tempLayers;
+        int[] tempMaterials = materials;
+        materials = scratchMaterials;
+        scratchMaterials = tempMaterials;
+        int[] tempPayloads = payloads;
+        payloads = scratchPayloads;
+        scratchPayloads = tempPayloads;
+    }
+
+
+    /**
+     * Clears all submitted commands from this queue.
+     * Allocated space is retained for the next frame.
+     */
+    public void clear() {
+
+        size = 0;
+        Arrays.fill(layerCounts, 0);
+    }
+
+
+    /**
+     * Grows this queue to twice its current capacity.
+     */
+    private void grow() {
+
+        int capacity = Math.max(16, layers.length * 2);
+        layers = Arrays.copyOf(layers, capacity);
+        materials = Arrays.copyOf(materials, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+        scratchLayers = new byte[capacity];
+        scratchMaterials = new int[capacity];
+        scratchPayloads = new int[capacity];
+    }
+
+
+    // GETTERS
+    public int size() {
+        return size;
+    }
+
+    public RenderLayer getLayer(int index) {
+        return allLayers[layers[index]];
+    }
+
+    public int getMaterial(int index) {
+        return materials[index];
+    }
+
+    public int getPayload(int index) {
+        return payloads[index];
+    }
+}
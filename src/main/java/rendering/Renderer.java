@@ -4,15 +4,28 @@ import core.GamePanel;
 import core.Transform;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
+import rendering.buffer.IndirectCommandBuffer;
+import rendering.buffer.PackedVertex;
+import rendering.buffer.SharedVertexBuffer;
+import rendering.drawable.BatchPool;
 import rendering.drawable.Drawable;
-import rendering.drawable.DrawableBatch;
-import rendering.drawable.DrawableSingle;
+import rendering.drawable.DrawableStore;
+import rendering.drawable.IndirectQuadBatch;
+import rendering.drawable.QuadBatch;
+import rendering.drawable.RetainedBatch;
+import rendering.drawable.RoundedBatch;
+import rendering.drawable.VertexFillTask;
 import rendering.font.CFont;
+import rendering.font.FontAtlasCache;
 import rendering.font.FontBatch;
-import rendering.font.Text;
+import rendering.font.TextBuffer;
+import utility.AssetPool;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class manages the rendering of drawable objects (i.e., sending instructions to the GPU).
@@ -23,29 +36,135 @@ public class Renderer {
     private final GamePanel gp;
 
     /**
-     * List to store single drawables to render.
+     * Number of frames over which the most batches needed in any frame is tracked before excess pooled batches are
+     * deleted.
      */
-    private final ArrayList<DrawableSingle> drawableSingles = new ArrayList<>();
+    private final int batchPoolWindow = 300;
 
     /**
-     * List to store batches of drawables to render.
+     * Material of render commands drawing drawables and rectangles with square corners.
      */
-    private final ArrayList<DrawableBatch> drawableBatches = new ArrayList<>();
+    private final int quadMaterial = 0;
 
     /**
-     * Map to store font batches to render; font name is the key, font batch is the value.
+     * Material of render commands drawing rectangles with round corners.
      */
-    private final HashMap<String, FontBatch> fontBatches = new HashMap<>();
+    private final int roundedMaterial = 1;
 
     /**
-     * List to store staged text to render.
+     * Material of render commands drawing text with the font whose ID is 0.
+     * Text with each other font has its own material, offset from this by its font ID.
      */
-    private final HashMap<String, ArrayList<Text>> stagedText = new HashMap<>();
+    private final int textMaterial = 2;
 
     /**
-     * Map to store loaded fonts; font name is the key, font is the value.
+     * Total number of words in each record of a rectangle with round corners staged in the frame arena.
+     * Each record holds position, width, height, radius (all floats), then color (0xRRGGBBAA).
      */
-    private final HashMap<String, CFont> fonts = new HashMap<>();
+    private final int roundedRecordSize = 6;
+
+    /**
+     * Pool of batches of rectangles with rounded corners to render.
+     * Batches are filled in render order, so each run of rectangles has batches of its own.
+     */
+    private final BatchPool<RoundedBatch> roundedBatches;
+
+    /**
+     * Pool of batches of drawables to render.
+     * The type of batch depends on the selected quad mode.
+     * Batches are filled in render order, so each run of drawables has batches of its own.
+     */
+    private final BatchPool<QuadBatch> drawableBatches;
+
+    /**
+     * Vertex buffer shared by all batches of drawables.
+     * Every batch in use is allocated its own range each frame, so all batches are uploaded together and drawn without
+     * binding different buffer or vertex array objects in between.
+     */
+    private final SharedVertexBuffer drawableVertices;
+
+    /**
+     * Command buffer that consecutive batches of drawables sampling the same array texture record their draws into, so
+     * that they are drawn with a single multi-draw indirect call.
+     * This is only used if supported by the current OpenGL context and the selected quad mode.
+     */
+    private final IndirectCommandBuffer drawableCommands = new IndirectCommandBuffer(64);
+
+    /**
+     * List to store drawables queued to render this frame.
+     * Non-negative payloads of commands in the render queue are indices into this list.
+     */
+    private final ArrayList<Drawable> queuedDrawables = new ArrayList<>();
+
+    /**
+     * Store to hold quads queued to render this frame that were specified by primitive values rather than drawables.
+     * Negative payloads of commands in the render queue are bitwise complements of handles in this store.
+     * It is cleared every frame, but its storage is retained so that queueing quads does not allocate.
+     */
+    private final DrawableStore immediateStore = new DrawableStore(1024);
+
+    /**
+     * Queue to order render commands of every kind by layer, then submission order, before they are added to batches.
+     */
+    private final RenderQueue renderQueue = new RenderQueue(1024);
+
+    /**
+     * End (exclusive) of each run of contiguous render commands of the same material this frame, as an index into the
+     * sorted render queue.
+     * Each run starts where the previous one ends.
+     */
+    private int[] runCommandEnds = new int[64];
+
+    /**
+     * End (exclusive) of each run of drawables or rectangles with round corners this frame, as an index into its pool
+     * of batches; unused for runs of text.
+     * Each run starts where the previous run of the same kind ends.
+     */
+    private int[] runBatchEnds = new int[64];
+
+    /**
+     * Number of runs of render commands this frame.
+     */
+    private int numRuns;
+
+    /**
+     * List to store batches of registered drawables, which are retained on the GPU between frames.
+     */
+    private final ArrayList<RetainedBatch> retainedBatches = new ArrayList<>();
+
+    /**
+     * List to store registered drawables that were removed from their retained batch because it could not sample their
+     * new sprite, and must be registered again.
+     */
+    private final ArrayList<Drawable> evictedDrawables = new ArrayList<>();
+
+    /**
+     * List to store loaded fonts; the index of a font is its font ID.
+     */
+    private final ArrayList<CFont> fonts = new ArrayList<>();
+
+    /**
+     * Map to store font IDs; font name is the key, font ID is the value.
+     */
+    private final HashMap<String, Integer> fontIds = new HashMap<>();
+
+    /**
+     * List to store font batches to render, indexed by font ID.
+     * A font batch is null until text with its font is first added.
+     */
+    private final ArrayList<FontBatch> fontBatches = new ArrayList<>();
+
+    /**
+     * Arena holding transient render data written this frame.
+     * It is reset once everything has been rendered, releasing all of it at once.
+     */
+    private final FrameArena frameArena = new FrameArena(1024, 1024);
+
+    /**
+     * Staged text to render.
+     * Staged text lives in the frame arena, so it is released when the arena is reset.
+     */
+    private final TextBuffer stagedText = new TextBuffer(frameArena);
 
 
     // CONSTRUCTOR
@@ -56,59 +175,131 @@ public class Renderer {
      */
     public Renderer(GamePanel gp) {
         this.gp = gp;
+        this.roundedBatches = new BatchPool<>(() -> new RoundedBatch(gp), batchPoolWindow);
+        this.drawableBatches = new BatchPool<>(this::createBatch, batchPoolWindow);
+        this.drawableVertices = new SharedVertexBuffer(gp.getUploadMode(), 1 << 17, 1000);                              // Initially room for a few full batches; a batch draws at most 1000 quads.
         initializeFonts();
     }
 
 
     // METHODS
     /**
-     * Renders all added drawables and text.
+     * Renders all registered drawables, then everything added this frame.
+     * Added drawables, rectangles, and text are rendered layer by layer, and in the order they were added within each
+     * layer.
      */
     public void render() {
 
-        // Batches of drawables.
-        for (DrawableBatch batch : drawableBatches) {
-            if (batch.hasDrawable()) {
-                batch.flush();
-            }
-        }
+        // Registered drawables.
+        renderRetained();
 
-        // Single drawables.
-        for (DrawableSingle single : drawableSingles) {
-            if (!single.isAvailable()) {
-                single.flush();
-            }
+        // Split commands into runs and fill batches.
+        renderQueue.sort();
+        fillRuns();
+
+        // Upload all batches of drawables at once.
+        boolean hasDrawables = drawableBatches.getNumInUse() > 0;
+        if (hasDrawables) {
+            allocateVertices();
+            fillVertices();
+            drawableVertices.end();
         }
 
-        // Text.
-        for (String font : stagedText.keySet()) {                                                                       // Loop through each type of font stored in the staged text.
-            for (Text text : stagedText.get(font)) {                                                                    // Render all text of the current font.
-                fontBatches.get(font).addString(text.getText(),
-                        text.getScreenX(), text.getScreenY(),
-                        text.getScale(), text.getColor());
+        // Draw runs in order.
+        drawRuns();
+        if (hasDrawables) {
+            drawableVertices.fence();                                                                                   // Written memory must not be reused until the GPU has finished drawing it.
+        }
+        drawableBatches.endFrame();
+        roundedBatches.endFrame();
+        for (FontBatch fontBatch : fontBatches) {
+            if (fontBatch != null) {
+                fontBatch.endFrame();
             }
-            fontBatches.get(font).flush();                                                                              // Must flush at the end to render any remaining characters in the batch.
-            stagedText.get(font).clear();                                                                               // Remove all staged text of the current font as it has already been rendered.
         }
+
+        // Release all transient render data of this frame at once.
+        renderQueue.clear();
+        queuedDrawables.clear();
+        immediateStore.clear();
+        frameArena.reset();
+        GLState.endFrame();
     }
 
 
     /**
-     * Adds a drawable to the render pipeline.
+     * Adds a drawable to the render pipeline on the world layer.
      *
      * @param drawable Drawable instance to add
      */
     public void addDrawable(Drawable drawable) {
 
+        addDrawable(drawable, RenderLayer.WORLD);
+    }
+
+
+    /**
+     * Adds a drawable to the render pipeline on a specific layer.
+     * Everything on earlier layers is rendered first (i.e., appears beneath everything on later layers).
+     * Everything on the same layer is rendered in the order it was added.
+     *
+     * @param drawable Drawable instance to add
+     * @param layer layer to render on
+     */
+    public void addDrawable(Drawable drawable, RenderLayer layer) {
+
         if (drawable != null) {
 
-            addDrawableToBatch(drawable);
+            queueDrawable(drawable, layer);
         }
     }
 
 
     /**
-     * Adds a string of characters to the render pipeline.
+     * Registers a drawable to be rendered every frame until unregistered.
+     * Unlike added drawables, a registered drawable keeps its vertices on the GPU between frames, and they are only
+     * rewritten when its transform, color, or sprite changes.
+     * Registered drawables are rendered beneath all added drawables.
+     *
+     * @param drawable Drawable instance to register
+     */
+    public void registerDrawable(Drawable drawable) {
+
+        if ((drawable == null) || (drawable.getRetainedBatch() != null)) {
+
+            return;
+        }
+
+        for (RetainedBatch batch : retainedBatches) {
+
+            if (batch.hasRoom() && batch.canSample(drawable.getTexture())) {
+
+                batch.add(drawable);
+                return;
+            }
+        }
+        RetainedBatch newBatch = new RetainedBatch(gp);
+        retainedBatches.add(newBatch);
+        newBatch.add(drawable);
+    }
+
+
+    /**
+     * Unregisters a drawable so that it is no longer rendered every frame.
+     *
+     * @param drawable Drawable instance to unregister
+     */
+    public void unregisterDrawable(Drawable drawable) {
+
+        if ((drawable != null) && (drawable.getRetainedBatch() != null)) {
+
+            drawable.getRetainedBatch().remove(drawable);
+        }
+    }
+
+
+    /**
+     * Adds a string of characters to the render pipeline on the UI layer.
      *
      * @param text text to add
      * @param screenX x-coordinate (leftmost)
@@ -119,14 +310,52 @@ public class Renderer {
      */
     public void addString(String text, int screenX, int screenY, float scale, Vector3f color, String font) {
 
-        if (stagedText.get(font) == null) {                                                                             // Check if any text with this font has already been processed.
+        int rgba = ((int)color.x << 24) | ((int)color.y << 16) | ((int)color.z << 8) | 0xFF;
+        addString(text, screenX, screenY, scale, rgba, getFontId(font));
+    }
+
+
+    /**
+     * Adds a string of characters to the render pipeline on the UI layer.
+     * The characters are copied into staging storage that is reused every frame, so nothing is allocated.
+     *
+     * @param text text to add
+     * @param screenX x-coordinate (leftmost)
+     * @param screenY y-coordinate (topmost)
+     * @param scale scale factor compared to native font size
+     * @param rgba color packed as 0xRRGGBBAA
+     * @param fontId ID of font to use (see `getFontId()`)
+     */
+    public void addString(CharSequence text, float screenX, float screenY, float scale, int rgba, int fontId) {
+
+        addString(text, screenX, screenY, scale, rgba, fontId, RenderLayer.UI);
+    }
+
+
+    /**
+     * Adds a string of characters to the render pipeline on a specific layer.
+     * The characters are copied into staging storage that is reused every frame, so nothing is allocated.
+     * Contiguous strings with the same font on the same layer are rendered together.
+     *
+     * @param text text to add
+     * @param screenX x-coordinate (leftmost)
+     * @param screenY y-coordinate (topmost)
+     * @param scale scale factor compared to native font size
+     * @param rgba color packed as 0xRRGGBBAA
+     * @param fontId ID of font to use (see `getFontId()`)
+     * @param layer layer to render on
+     */
+    public void addString(CharSequence text, float screenX, float screenY, float scale, int rgba, int fontId,
+                          RenderLayer layer) {
+
+        if (fontBatches.get(fontId) == null) {                                                                          // Check if any text with this font has already been processed.
 
-            stagedText.put(font, new ArrayList<>());                                                                    // Create a new list of staged text for this new font.
             FontBatch newBatch = new FontBatch(gp);
-            newBatch.setFont(fonts.get(font));
-            fontBatches.put(font, newBatch);                                                                            // Create a new batch for this new font.
+            newBatch.setFont(fonts.get(fontId));
+            fontBatches.set(fontId, newBatch);                                                                          // Create a new batch for this new font.
         }
-        stagedText.get(font).add(new Text(text, screenX, screenY, scale, color, font));
+        int record = stagedText.add(text, screenX, screenY, scale, rgba);
+        renderQueue.submit(layer, textMaterial + fontId, record);
     }
 
 
@@ -138,8 +367,49 @@ public class Renderer {
      */
     public void addRectangle(Vector4f color, Transform transform) {
 
-        Drawable rectangle = new Drawable("auto-generated-rectangle", transform, color);
-        addDrawableToBatch(rectangle);
+        addRectangle(transform.position.x, transform.position.y, transform.scale.x, transform.scale.y,
+                PackedVertex.packColor(color));
+    }
+
+
+    /**
+     * Adds a rectangle with square corners to the render pipeline on the world layer.
+     *
+     * @param x x-coordinate (leftmost)
+     * @param y y-coordinate (topmost)
+     * @param width width
+     * @param height height
+     * @param rgba color packed as 0xRRGGBBAA
+     */
+    public void addRectangle(float x, float y, float width, float height, int rgba) {
+
+        addRectangle(x, y, width, height, rgba, RenderLayer.WORLD);
+    }
+
+
+    /**
+     * Adds a rectangle with square corners to the render pipeline on a specific layer.
+     * The rectangle is written straight into staging storage that is reused every frame, so nothing is allocated.
+     *
+     * @param x x-coordinate (leftmost)
+     * @param y y-coordinate (topmost)
+     * @param width width
+     * @param height height
+     * @param rgba color packed as 0xRRGGBBAA
+     * @param layer layer to render on
+     */
+    public void addRectangle(float x, float y, float width, float height, int rgba, RenderLayer layer) {
+
+        if (!immediateStore.hasRoom()) {
+
+            immediateStore.grow(immediateStore.getCapacity() * 2);
+        }
+        int handle = immediateStore.create();
+        immediateStore.setPosition(handle, x, y);
+        immediateStore.setScale(handle, width, height);
+        immediateStore.setColor(handle, rgba);
+        immediateStore.setUntextured(handle);
+        renderQueue.submit(layer, quadMaterial, ~handle);
     }
 
 
@@ -152,84 +422,416 @@ public class Renderer {
      */
     public void addRoundRectangle(Vector4f color, Transform transform, int radius) {
 
-        Drawable rectangle = new Drawable("auto-generated-round-rectangle", transform, color);
-        addDrawableToSingle(rectangle, radius);
+        addRoundRectangle(transform.position.x, transform.position.y, transform.scale.x, transform.scale.y, radius,
+                PackedVertex.packColor(color));
     }
 
 
     /**
-     * Adds a single drawable to render.
+     * Adds a rectangle with round corners to the render pipeline on the world layer.
      *
-     * @param drawable drawable to add
-     * @param radius arc radius at four corners of quad
+     * @param x x-coordinate (leftmost)
+     * @param y y-coordinate (topmost)
+     * @param width width
+     * @param height height
+     * @param radius arc radius at four corners of this rectangle
+     * @param rgba color packed as 0xRRGGBBAA
      */
-    private void addDrawableToSingle(Drawable drawable, int radius) {
+    public void addRoundRectangle(float x, float y, float width, float height, int radius, int rgba) {
+
+        addRoundRectangle(x, y, width, height, radius, rgba, RenderLayer.WORLD);
+    }
 
-        boolean added = false;
 
-        for (DrawableSingle single : drawableSingles) {
+    /**
+     * Adds a rectangle with round corners to the render pipeline on a specific layer.
+     * Contiguous rectangles with round corners on the same layer are rendered together in as few calls as possible,
+     * regardless of size or radius.
+     * The rectangle is staged in the frame arena, so nothing is allocated once enough batches exist to hold every
+     * round rectangle in a frame.
+     *
+     * @param x x-coordinate (leftmost)
+     * @param y y-coordinate (topmost)
+     * @param width width
+     * @param height height
+     * @param radius arc radius at four corners of this rectangle
+     * @param rgba color packed as 0xRRGGBBAA
+     * @param layer layer to render on
+     */
+    public void addRoundRectangle(float x, float y, float width, float height, int radius, int rgba,
+                                  RenderLayer layer) {
+
+        int record = frameArena.allocate(roundedRecordSize);
+        frameArena.putFloat(record, x);
+        frameArena.putFloat(record + 1, y);
+        frameArena.putFloat(record + 2, width);
+        frameArena.putFloat(record + 3, height);
+        frameArena.putFloat(record + 4, radius);
+        frameArena.putInt(record + 5, rgba);
+        renderQueue.submit(layer, roundedMaterial, record);
+    }
 
-            if (single.isAvailable()) {
 
-                single.setDrawable(drawable);
-                single.setRadius(radius);
-                added = true;
-                break;
-            }
+    /**
+     * Retrieves the ID of a loaded font.
+     * Font IDs are used to add text without looking up fonts by name.
+     *
+     * @param font name of font
+     * @return font ID
+     * @throws IllegalArgumentException if no font with the specified name is loaded
+     */
+    public int getFontId(String font) {
+
+        Integer fontId = fontIds.get(font);
+
+        if (fontId == null) {
+
+            throw new IllegalArgumentException("No font named '" + font + "' is loaded");
+        }
+        return fontId;
+    }
+
+
+    /**
+     * Rewrites any registered drawables that have changed, then renders all registered drawables.
+     */
+    private void renderRetained() {
+
+        // Register evicted drawables elsewhere first, so that they are written and uploaded with everything else.
+        for (int i = 0; i < retainedBatches.size(); i++) {                                                              // Indexed loops avoid allocating iterators every frame.
+            retainedBatches.get(i).takeEvictions(evictedDrawables);
+        }
+
+        for (int i = 0; i < evictedDrawables.size(); i++) {
+            registerDrawable(evictedDrawables.get(i));
+        }
+        evictedDrawables.clear();
+
+        for (int i = 0; i < retainedBatches.size(); i++) {
+            retainedBatches.get(i).update();
         }
 
-        if (!added) {
+        for (int i = retainedBatches.size() - 1; i >= 0; i--) {                                                         // Release batches left empty.
+            if (!retainedBatches.get(i).hasDrawable()) {
+                retainedBatches.remove(i).delete();
+            }
+        }
 
-            DrawableSingle single = new DrawableSingle(gp);
-            single.setDrawable(drawable);
-            single.setRadius(radius);
-            drawableSingles.add(single);
+        for (int i = 0; i < retainedBatches.size(); i++) {
+            retainedBatches.get(i).render();
         }
     }
 
 
     /**
-     * Adds a drawable to a batch to render.
+     * Queues a drawable to be added to a batch once everything for this frame has been added.
      *
-     * @param drawable drawable to add
+     * @param drawable drawable to queue
+     * @param layer layer to render on
      */
-    private void addDrawableToBatch(Drawable drawable) {
+    private void queueDrawable(Drawable drawable, RenderLayer layer) {
 
-        boolean added = false;
+        renderQueue.submit(layer, quadMaterial, queuedDrawables.size());
+        queuedDrawables.add(drawable);
+    }
 
-        for (DrawableBatch batch : drawableBatches) {
 
-            if (batch.hasRoom()) {
+    /**
+     * Splits all sorted render commands into runs of contiguous commands of the same material, adding drawables and
+     * rectangles to batches along the way.
+     * Each run starts new batches, since whatever is rendered between two runs must appear above the first and beneath
+     * the second.
+     * Within a run of drawables, a new batch is started whenever the current batch is full or cannot take the texture
+     * of the next drawable.
+     * Text is not added to font batches until drawn, since font batches draw whenever they fill up.
+     */
+    private void fillRuns() {
 
-                Texture texture = drawable.getTexture();
+        numRuns = 0;
+        QuadBatch batch = null;
+        RoundedBatch roundedBatch = null;
 
-                if ((texture == null) || (batch.hasTexture(texture) || batch.hasTextureRoom())) {
+        for (int i = 0; i < renderQueue.size(); i++) {
+
+            int material = renderQueue.getMaterial(i);
+
+            if ((i > 0) && (material != renderQueue.getMaterial(i - 1))) {
+
+                endRun(i);
+                batch = null;
+                roundedBatch = null;
+            }
+            int payload = renderQueue.getPayload(i);
 
+            if (material == quadMaterial) {
+
+                Drawable drawable = (payload >= 0) ? queuedDrawables.get(payload) : null;
+                Texture texture = (drawable != null) ? drawable.getTexture() : null;                                    // Quads in the immediate store are untextured.
+
+                if ((batch == null)
+                        || !batch.hasRoom()
+                        || ((texture != null) && !(batch.hasTexture(texture) || batch.hasTextureRoom()))) {
+
+                    batch = drawableBatches.acquire();
+                }
+                if (drawable != null) {
                     batch.addDrawable(drawable);
-                    added = true;
+                } else {
+                    batch.addQuad(immediateStore, ~payload);
+                }
+            } else if (material == roundedMaterial) {
+
+                if ((roundedBatch == null) || !roundedBatch.hasRoom()) {
+
+                    roundedBatch = roundedBatches.acquire();
+                }
+                roundedBatch.addRectangle(frameArena.getFloat(payload), frameArena.getFloat(payload + 1),
+                        frameArena.getFloat(payload + 2), frameArena.getFloat(payload + 3),
+                        frameArena.getFloat(payload + 4), frameArena.getInt(payload + 5));
+            }
+        }
+
+        if (renderQueue.size() > 0) {
+
+            endRun(renderQueue.size());
+        }
+    }
+
+
+    /**
+     * Ends the current run of render commands.
+     *
+     * @param commandEnd index of the first command in the sorted render queue after the run
+     */
+    private void endRun(int commandEnd) {
+
+        if (numRuns == runCommandEnds.length) {
+
+            runCommandEnds = Arrays.copyOf(runCommandEnds, numRuns * 2);
+            runBatchEnds = Arrays.copyOf(runBatchEnds, numRuns * 2);
+        }
+        int material = renderQueue.getMaterial(commandEnd - 1);
+        runCommandEnds[numRuns] = commandEnd;
+
+        if (material == quadMaterial) {
+
+            runBatchEnds[numRuns] = drawableBatches.getNumInUse();
+        } else if (material == roundedMaterial) {
+
+            runBatchEnds[numRuns] = roundedBatches.getNumInUse();
+        }
+        numRuns++;
+    }
+
+
+    /**
+     * Draws all runs of render commands in order.
+     * Vertices of all batches of drawables must have been filled and uploaded beforehand.
+     */
+    private void drawRuns() {
+
+        int command = 0;
+        int drawableBatch = 0;
+        int roundedBatch = 0;
+
+        for (int run = 0; run < numRuns; run++) {
+
+            int material = renderQueue.getMaterial(command);
+            int commandEnd = runCommandEnds[run];
+
+            if (material == quadMaterial) {
+
+                drawableVertices.bind();
+                drawBatches(drawableBatch, runBatchEnds[run]);
+                drawableBatch = runBatchEnds[run];
+            } else if (material == roundedMaterial) {
+
+                for (; roundedBatch < runBatchEnds[run]; roundedBatch++) {
+                    roundedBatches.get(roundedBatch).flush();
+                }
+            } else {
+
+                FontBatch fontBatch = fontBatches.get(material - textMaterial);
+                for (int i = command; i < commandEnd; i++) {
+                    stagedText.addTo(renderQueue.getPayload(i), fontBatch);
+                }
+                fontBatch.flush();                                                                                      // Must flush at the end to render any remaining characters in the batch.
+            }
+            command = commandEnd;
+        }
+    }
+
+
+    /**
+     * Begins a frame of the shared vertex buffer of drawables and allocates each batch in use its own range.
+     */
+    private void allocateVertices() {
+
+        int numBatches = drawableBatches.getNumInUse();
+
+        int numFloats = 0;
+        for (int i = 0; i < numBatches; i++) {
+            numFloats += drawableBatches.get(i).getNumFloats();
+        }
+        drawableVertices.begin(numFloats, drawableBatches.get(0).getVertexSize());
+
+        for (int i = 0; i < numBatches; i++) {
+            drawableBatches.get(i).allocate(drawableVertices);
+        }
+    }
+
+
+    /**
+     * Fills the vertices of all batches of drawables in use this frame.
+     * If there are enough quads, this is split across a fork/join pool so that the render thread only has to upload
+     * and draw.
+     */
+    private void fillVertices() {
+
+        int numBatches = drawableBatches.getNumInUse();
+
+        int numQuads = 0;
+        for (int i = 0; i < numBatches; i++) {
+            numQuads += drawableBatches.get(i).getNumQuads();
+        }
+
+        if ((numBatches > 0) && (numQuads >= gp.getParallelFillThreshold())) {
+
+            ForkJoinPool.commonPool().invoke(new VertexFillTask(drawableBatches.getBatches(), 0, numBatches));
+        } else {
+
+            for (int i = 0; i < numBatches; i++) {
+                drawableBatches.get(i).fillVertices(0, drawableBatches.get(i).getNumQuads());
+            }
+        }
+    }
+
+
+    /**
+     * Draws a range of batches of drawables in use this frame.
+     * If multi-draw indirect is available, groups of consecutive batches that can be drawn indirectly and sample the
+     * same array texture are drawn together with a single call; otherwise (ex. on OpenGL 3.3, or with a quad mode whose
+     * batches cannot be drawn indirectly), each batch is drawn with its own call.
+     * Either way, batches are drawn in the order they were filled, so layering is preserved.
+     * The shared vertex array object must be bound.
+     *
+     * @param start index of first batch to draw (inclusive)
+     * @param end index of last batch to draw (exclusive)
+     */
+    private void drawBatches(int start, int end) {
+
+        if (!IndirectCommandBuffer.isSupported()) {
+
+            for (int i = start; i < end; i++) {
+                drawableBatches.get(i).flush();
+            }
+            return;
+        }
+        int first = start;
+
+        while (first < end) {
+
+            // Find the group of consecutive batches that can share one array texture; untextured batches fit any group.
+            // Batches that cannot be drawn indirectly always form a group of their own.
+            TextureArray textureArray = drawableBatches.get(first).getTextureArray();
+            int last = first + 1;
+            while ((last < end) && (drawableBatches.get(first) instanceof IndirectQuadBatch)
+                    && (drawableBatches.get(last) instanceof IndirectQuadBatch)) {
+                TextureArray next = drawableBatches.get(last).getTextureArray();
+                if ((textureArray != null) && (next != null) && (next != textureArray)) {
                     break;
                 }
+                if (textureArray == null) {
+                    textureArray = next;
+                }
+                last++;
             }
+
+            if ((last - first) == 1) {
+
+                drawableBatches.get(first).flush();                                                                     // Nothing to gain from an indirect draw.
+            } else {
+
+                for (int i = first; i < last; i++) {
+                    ((IndirectQuadBatch)drawableBatches.get(i)).flushInto(drawableCommands);
+                }
+                drawIndirect(textureArray);
+            }
+            first = last;
         }
+    }
 
-        if (!added) {
 
-            DrawableBatch newBatch = new DrawableBatch(gp);
-            drawableBatches.add(newBatch);
-            newBatch.addDrawable(drawable);
+    /**
+     * Draws all commands recorded in the command buffer of batches of drawables with a single call.
+     *
+     * @param textureArray array texture sampled by the recorded batches, or null if none sample a texture
+     */
+    private void drawIndirect(TextureArray textureArray) {
+
+        // Bind shader program.
+        Shader shader = getBatchShader();
+        shader.use();
+
+        // Camera.
+        shader.uploadMat4f("uProjection", gp.getSystemCamera().getProjectionMatrix());
+        shader.uploadMat4f("uView", gp.getSystemCamera().getViewMatrix());
+
+        // Bind array texture.
+        if (textureArray != null) {
+            textureArray.bind(0);
         }
+        shader.uploadTexture("uTextureArray", 0);
+
+        // Draw.
+        drawableCommands.draw();
+    }
+
+
+    /**
+     * Creates a new batch of drawables using the selected quad mode.
+     *
+     * @return new batch
+     */
+    private QuadBatch createBatch() {
+
+        return gp.getQuadMode().create(gp);
+    }
+
+
+    /**
+     * Retrieves the shader used by batches of drawables.
+     *
+     * @return shader
+     */
+    private Shader getBatchShader() {
+
+        return AssetPool.getShader(gp.getQuadMode().getShaderPath());
     }
 
 
     /**
      * Loads available fonts.
+     * Finished font atlases are cached on disk, so fonts are only rasterized on the first launch.
      */
     private void initializeFonts() {
 
-        CFont font = new CFont("/fonts/Arimo-mO92.ttf", 128);
-        fonts.put(font.getName(), font);
+        FontAtlasCache cache = gp.getFontCacheDirectory().isBlank()
+                ? null : new FontAtlasCache(Path.of(gp.getFontCacheDirectory()));
+        addFont(new CFont("/fonts/Arimo-mO92.ttf", 128, gp.getFontAtlasMode(), cache));
+        addFont(new CFont("/fonts/ArimoBold-dVDx.ttf", 128, gp.getFontAtlasMode(), cache));
+    }
+
+
+    /**
+     * Registers a loaded font, assigning it the next font ID.
+     *
+     * @param font font to register
+     */
+    private void addFont(CFont font) {
 
-        font = new CFont("/fonts/ArimoBold-dVDx.ttf", 128);
-        fonts.put(font.getName(), font);
+        fontIds.put(font.getName(), fonts.size());
+        fonts.add(font);
+        fontBatches.add(null);
     }
 }
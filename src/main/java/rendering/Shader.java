@@ -39,11 +39,6 @@ public class Shader {
      */
     private String fragmentSource;
 
-    /**
-     * Boolean indicating whether this shader is currently in use or not.
-     */
-    private boolean inUse = false;
-
 
     // CONSTRUCTOR
     /**
@@ -66,21 +61,18 @@ public class Shader {
      */
     public void use() {
 
-        if (!inUse) {
-
-            inUse = true;
-            glUseProgram(shaderProgramId);
-        }
+        GLState.useProgram(shaderProgramId);
     }
 
 
     /**
      * Detaches this shader.
+     * This is only needed before code that does not expect any shader to be in use; shaders otherwise stay in use
+     * until another is used.
      */
     public void detach() {
 
-        glUseProgram(0);                                                                                                // 0 is a flag that states to bind nothing.
-        inUse = false;
+        GLState.useProgram(0);                                                                                          // 0 is a flag that states to bind nothing.
     }
 
 
@@ -349,6 +341,6 @@ public class Shader {
     }
 
     public boolean isInUse() {
-        return inUse;
+        return GLState.getProgram() == shaderProgramId;
     }
 }
@@ -1,6 +1,7 @@
 package rendering;
 
 import org.lwjgl.BufferUtils;
+import utility.AssetPool;
 import utility.UtilityTool;
 
 import java.nio.ByteBuffer;
@@ -23,6 +24,7 @@ public class Texture {
 
     /**
      * Texture ID.
+     * This is zero for textures loaded from file, which only exist as a layer of their array texture.
      */
     private int textureId;
 
@@ -36,11 +38,23 @@ public class Texture {
      */
     private int nativeHeight;
 
+    /**
+     * Array texture that this texture is uploaded to as a layer.
+     * This is null for textures that are allocated rather than loaded from file.
+     */
+    private TextureArray textureArray;
+
+    /**
+     * Layer of this texture in its array texture.
+     */
+    private int arrayLayer;
+
 
     // CONSTRUCTORS
     /**
      * Constructs a Texture instance.
-     * The texture at the provided file path is loaded and uploaded to the GPU upon construction.
+     * The texture at the provided file path is loaded and uploaded to the GPU upon construction, as a layer of an array
+     * texture containing other textures of the same size.
      * Note that as many textures as desired can be uploaded to the GPU as long as memory permits.
      * This should not be confused with the number of slots available for binding on the GPU for texture sampling.
      *
@@ -72,43 +86,39 @@ public class Texture {
      * When binding, a shader is told where to find a texture that's been uploaded to the GPU via its texture ID.
      * This texture is bound to a slot on the GPU.
      * Inside a shader, the texture can then be retrieved from that slot and sampled to draw.
+     * Only textures allocated rather than loaded from file can be bound this way; loaded textures are bound through
+     * their array texture instead.
+     *
+     * @param unit texture unit to bind to (0 for GL_TEXTURE0, 1 for GL_TEXTURE1, etc.)
      */
-    public void bind() {
+    public void bind(int unit) {
 
-        glBindTexture(GL_TEXTURE_2D, textureId);
+        GLState.bindTexture(unit, GL_TEXTURE_2D, textureId);
     }
 
 
     /**
      * Unbinds this texture when finished being used.
+     * This is only needed before code that expects nothing to be bound; since binds are tracked by `GLState`, textures
+     * are otherwise left bound until something else is bound in their place.
+     *
+     * @param unit texture unit to unbind from (0 for GL_TEXTURE0, 1 for GL_TEXTURE1, etc.)
      */
-    public void unbind() {
+    public void unbind(int unit) {
 
-        glBindTexture(GL_TEXTURE_2D, 0);
+        GLState.bindTexture(unit, GL_TEXTURE_2D, 0);
     }
 
 
     /**
-     * Loads this texture from file and uploads it to the GPU.
+     * Loads this texture from file and uploads it to the GPU as a layer of an array texture.
+     * No standalone texture object is generated, since loaded textures are only ever sampled through their array
+     * texture.
      *
      * @throws RuntimeException
      */
     private void load() {
 
-        // Generate texture on GPU.
-        textureId = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, textureId);
-
-        // Parameter: repeat image in both directions.
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
-
-        // Parameter: pixelate when stretching.
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-
-        // Parameter: pixelate when shrinking.
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-
         // Load image.
         IntBuffer bufferWidth = BufferUtils.createIntBuffer(1);
         IntBuffer bufferHeight = BufferUtils.createIntBuffer(1);
@@ -116,12 +126,11 @@ public class Texture {
         ByteBuffer image = UtilityTool.ioResourceToByteBuffer(filePath, 4096);
         ByteBuffer pixels = stbi_load_from_memory(image, bufferWidth, bufferHeight, bufferChannels, 0);
         if (pixels != null) {
+            int format;
             if (bufferChannels.get(0) == 3) {                                                                           // rbg image.
-                glTexImage2D(GL_TEXTURE_2D, 0, GL_RGB, bufferWidth.get(0), bufferHeight.get(0),                         // Upload image to GPU.
-                        0, GL_RGB, GL_UNSIGNED_BYTE, pixels);
+                format = GL_RGB;
             } else if (bufferChannels.get(0) == 4) {                                                                    // rgba image.
-                glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, bufferWidth.get(0), bufferHeight.get(0),                        // Upload image to GPU.
-                        0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+                format = GL_RGBA;
             } else {
                 // TODO : Throw more specific exception.
                 throw new RuntimeException("Unexpected number of channels (" + bufferChannels.get(0)
@@ -129,6 +138,10 @@ public class Texture {
             }
             nativeWidth = bufferWidth.get(0);
             nativeHeight = bufferHeight.get(0);
+
+            // Upload image as layer of array texture.
+            textureArray = AssetPool.getTextureArray(nativeWidth, nativeHeight);
+            arrayLayer = textureArray.addLayer(pixels, format);
         } else {
             // TODO : Throw more specific exception.
             throw new RuntimeException("Failed to load texture from " + filePath);
@@ -149,7 +162,7 @@ public class Texture {
 
         // Generate texture on GPU.
         textureId = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, textureId);
+        GLState.bindTexture(GL_TEXTURE_2D, textureId);
 
         // Allocate space for empty image.
         glTexImage2D(GL_TEXTURE_2D, 0, GL_RGB, width, height, 0, GL_RGB, GL_UNSIGNED_BYTE, 0);
@@ -175,6 +188,14 @@ public class Texture {
         return nativeHeight;
     }
 
+    public TextureArray getTextureArray() {
+        return textureArray;
+    }
+
+    public int getArrayLayer() {
+        return arrayLayer;
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -188,6 +209,8 @@ public class Texture {
         return (oTexture.getNativeWidth() == this.nativeWidth)
                 && (oTexture.getNativeHeight() == this.nativeHeight)
                 && (oTexture.getTextureId() == this.textureId)
+                && (oTexture.getTextureArray() == this.textureArray)
+                && (oTexture.getArrayLayer() == this.arrayLayer)
                 && (oTexture.getFilePath().equals(this.filePath));
     }
 }
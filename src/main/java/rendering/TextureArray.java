@@ -0,0 +1,159 @@
+package rendering;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.glTexImage3D;
+import static org.lwjgl.opengl.GL12.glTexSubImage3D;
+import static org.lwjgl.opengl.GL30.GL_MAX_ARRAY_TEXTURE_LAYERS;
+import static org.lwjgl.opengl.GL30.GL_TEXTURE_2D_ARRAY;
+
+/**
+ * This class defines an array texture that stores textures of the same size as layers.
+ * A shader can sample any layer through a single binding, so drawables using textures in the same array texture can be
+ * rendered in a single call regardless of how many textures are involved.
+ */
+public class TextureArray {
+
+    // FIELDS
+    /**
+     * Approximate maximum amount of memory (bytes) to allocate for each array texture.
+     * This limits the number of layers for large textures.
+     */
+    private static final int maxBytes = 32 * 1024 * 1024;
+
+    /**
+     * Maximum number of layers in each array texture, regardless of texture size.
+     */
+    private static final int maxLayers = 64;
+
+    /**
+     * Array texture ID.
+     */
+    private int textureId;
+
+    /**
+     * Width of each layer.
+     */
+    private final int width;
+
+    /**
+     * Height of each layer.
+     */
+    private final int height;
+
+    /**
+     * Number of layers allocated in this array texture.
+     */
+    private final int capacity;
+
+    /**
+     * Number of layers in this array texture filled thus far.
+     */
+    private int numLayers;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a TextureArray instance.
+     * An empty array texture is prepared and allocated on the GPU upon construction.
+     * The number of layers allocated depends on the size of each layer.
+     *
+     * @param width width of each layer
+     * @param height height of each layer
+     */
+    public TextureArray(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int fit = (int)Math.max(1, maxBytes / ((long)width * height * 4));                                              // Four bytes (rgba) per pixel.
+        this.capacity = Math.min(fit, Math.min(maxLayers, glGetInteger(GL_MAX_ARRAY_TEXTURE_LAYERS)));
+        allocate();
+    }
+
+
+    // METHODS
+    /**
+     * Binds this array texture to be used when drawing.
+     *
+     * @param unit texture unit to bind to (0 for GL_TEXTURE0, 1 for GL_TEXTURE1, etc.)
+     */
+    public void bind(int unit) {
+
+        GLState.bindTexture(unit, GL_TEXTURE_2D_ARRAY, textureId);
+    }
+
+
+    /**
+     * Unbinds this array texture when finished being used.
+     * This is only needed before code that expects nothing to be bound; since binds are tracked by `GLState`, textures
+     * are otherwise left bound until something else is bound in their place.
+     *
+     * @param unit texture unit to unbind from (0 for GL_TEXTURE0, 1 for GL_TEXTURE1, etc.)
+     */
+    public void unbind(int unit) {
+
+        GLState.bindTexture(unit, GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+
+    /**
+     * Uploads an image to the next free layer of this array texture.
+     *
+     * @param pixels image pixels
+     * @param format pixel format of image (GL_RGB or GL_RGBA)
+     * @return layer the image was uploaded to
+     * @throws IllegalStateException if this array texture is full
+     */
+    public int addLayer(ByteBuffer pixels, int format) {
+
+        if (!hasRoom()) {
+            throw new IllegalStateException("Attempted to add a layer to a full texture array");
+        }
+        int layer = numLayers++;
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, textureId);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);                                                                          // Rows of rgb images are not necessarily four-byte aligned.
+        glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, layer, width, height, 1, format, GL_UNSIGNED_BYTE, pixels);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);                                                                          // Restore default alignment.
+        return layer;
+    }
+
+
+    /**
+     * Allocates this array texture on the GPU.
+     */
+    private void allocate() {
+
+        // Generate texture on GPU.
+        textureId = glGenTextures();
+        GLState.bindTexture(GL_TEXTURE_2D_ARRAY, textureId);
+
+        // Parameter: repeat image in both directions.
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_S, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_T, GL_REPEAT);
+
+        // Parameter: pixelate when stretching and shrinking.
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+
+        // Allocate space for all layers.
+        glTexImage3D(GL_TEXTURE_2D_ARRAY, 0, GL_RGBA8, width, height, capacity, 0, GL_RGBA, GL_UNSIGNED_BYTE, 0);
+    }
+
+
+    // GETTERS
+    public int getTextureId() {
+        return textureId;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean hasRoom() {
+        return numLayers < capacity;
+    }
+}
@@ -0,0 +1,150 @@
+package rendering.buffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import rendering.GLState;
+
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL40.GL_DRAW_INDIRECT_BUFFER;
+import static org.lwjgl.opengl.GL43.glMultiDrawElementsIndirect;
+
+/**
+ * This class gathers indexed draw commands on the CPU and submits them to the GPU in a single multi-draw indirect call
+ * (GL_ARB_multi_draw_indirect).
+ * Batches that share the same shader and bound textures record their draws here instead of drawing them one by one,
+ * so many batches cost the driver a single call.
+ * Storage is retained and reused every frame, so recording commands does not allocate once it is large enough.
+ */
+public class IndirectCommandBuffer {
+
+    /*
+     * Command in Command Array (DrawElementsIndirectCommand)
+     * ======================================================
+     * Count    Instance count    First index    Base vertex    Base instance
+     * uint,    uint,             uint,          int,           uint
+     */
+
+    // FIELDS
+    /**
+     * Total number of integers in each command of the command array.
+     */
+    private static final int commandSize = 5;
+
+    /**
+     * Command array.
+     * This is off-heap staging memory that commands are written into before being uploaded.
+     */
+    private IntBuffer commands;
+
+    /**
+     * Number of commands recorded since the last draw.
+     */
+    private int numCommands;
+
+    /**
+     * Draw indirect buffer object ID; 0 is a flag that states the buffer has not been generated yet.
+     */
+    private int bufferId = 0;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs an IndirectCommandBuffer instance.
+     * No GPU objects are created until the first draw.
+     *
+     * @param initialCapacity number of commands that can be recorded before growing
+     */
+    public IndirectCommandBuffer(int initialCapacity) {
+        this.commands = BufferUtils.createIntBuffer(initialCapacity * commandSize);
+    }
+
+
+    // METHODS
+    /**
+     * Records an indexed draw command.
+     *
+     * @param count number of indices to draw
+     * @param instanceCount number of instances to draw
+     * @param firstIndex index of first index to draw
+     * @param baseVertex value added to each index before fetching vertices
+     * @param baseInstance value added to the instance index before fetching instanced attributes
+     */
+    public void add(int count, int instanceCount, int firstIndex, int baseVertex, int baseInstance) {
+
+        int offset = numCommands * commandSize;
+
+        if (offset + commandSize > commands.capacity()) {
+
+            IntBuffer grown = BufferUtils.createIntBuffer(commands.capacity() * 2);
+            commands.limit(offset).position(0);
+            grown.put(commands).clear();
+            commands = grown;
+        }
+        commands.put(offset, count);
+        commands.put(offset + 1, instanceCount);
+        commands.put(offset + 2, firstIndex);
+        commands.put(offset + 3, baseVertex);
+        commands.put(offset + 4, baseInstance);
+        numCommands++;
+    }
+
+
+    /**
+     * Uploads all recorded commands and draws them as triangles in a single call, then clears them.
+     * The vertex array object, shader, and textures used by every command must already be bound.
+     */
+    public void draw() {
+
+        if (numCommands == 0) {
+
+            return;
+        }
+
+        if (bufferId == 0) {
+
+            bufferId = glGenBuffers();
+        }
+        GLState.bindBuffer(GL_DRAW_INDIRECT_BUFFER, bufferId);
+        commands.limit(numCommands * commandSize).position(0);
+        glBufferData(GL_DRAW_INDIRECT_BUFFER, commands, GL_STREAM_DRAW);                                                // Orphans the previous commands, so they never need to be waited on.
+        commands.clear();
+
+        glMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, 0, numCommands, 0);                                  // Commands are tightly packed, hence the zero stride.
+        numCommands = 0;
+    }
+
+
+    /**
+     * Deletes the draw indirect buffer.
+     * It is created again on the next draw.
+     */
+    public void delete() {
+
+        if (bufferId != 0) {
+
+            GLState.deleteBuffer(bufferId);
+            bufferId = 0;
+        }
+    }
+
+
+    /**
+     * Checks whether multi-draw indirect is supported by the current OpenGL context.
+     *
+     * @return whether multi-draw indirect is supported (true) or not (false)
+     */
+    public static boolean isSupported() {
+
+        GLCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL43 || capabilities.GL_ARB_multi_draw_indirect;
+    }
+
+
+    // GETTERS
+    public int getNumCommands() {
+        return numCommands;
+    }
+}
@@ -0,0 +1,104 @@
+package rendering.buffer;
+
+import org.lwjgl.BufferUtils;
+import rendering.GLState;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.system.MemoryUtil.memAddress;
+import static org.lwjgl.system.MemoryUtil.memCopy;
+
+/**
+ * This class uploads vertices by appending them to a larger vertex buffer through an unsynchronized
+ * `glMapBufferRange`, copying from off-heap staging memory.
+ * Each upload lands after the previous one, so the driver never needs to synchronize with pending draws.
+ * Once the vertex buffer is full, it is orphaned and appending starts over from its beginning.
+ */
+public class MapRangeUpload extends VertexUpload {
+
+    // FIELDS
+    /**
+     * Number of full uploads that fit in the vertex buffer before it must be orphaned.
+     */
+    private final int numSegments = 4;
+
+    /**
+     * Total number of floats in the vertex buffer.
+     */
+    private final int bufferSize;
+
+    /**
+     * Off-heap staging memory that vertices are written into.
+     */
+    private final FloatBuffer staging;
+
+    /**
+     * Float at which the next upload will be appended to the vertex buffer.
+     */
+    private int cursor;
+
+    /**
+     * Offset (in floats) of the most recent upload from the start of the vertex buffer.
+     */
+    private int lastOffset;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a MapRangeUpload instance.
+     *
+     * @param capacity maximum number of floats that can be written before each upload
+     * @param vertexSize number of floats in each vertex
+     */
+    public MapRangeUpload(int capacity, int vertexSize) {
+        super(capacity, vertexSize);
+        this.bufferSize = capacity * numSegments;
+        this.staging = BufferUtils.createFloatBuffer(capacity);
+        glBufferData(GL_ARRAY_BUFFER, (long)bufferSize * Float.BYTES, GL_STREAM_DRAW);
+    }
+
+
+    // METHODS
+    @Override
+    public FloatBuffer begin() {
+
+        return staging;
+    }
+
+
+    @Override
+    public int end() {
+
+        GLState.bindBuffer(GL_ARRAY_BUFFER, getVboId());
+
+        if (!isDirty()) {
+
+            clearDirty(0);                                                                                              // Previous upload holds every unchanged range and can still be drawn from.
+            return lastOffset;
+        }
+        int size = Math.max(getDirtyEnd(), getUnchangedEnd());                                                          // Each upload lands somewhere new, so the entire used prefix is uploaded.
+
+        if ((cursor + size) > bufferSize) {
+
+            glBufferData(GL_ARRAY_BUFFER, (long)bufferSize * Float.BYTES, GL_STREAM_DRAW);                              // Orphan old storage and start over.
+            cursor = 0;
+        }
+        int access = GL_MAP_WRITE_BIT | GL_MAP_UNSYNCHRONIZED_BIT | GL_MAP_INVALIDATE_RANGE_BIT;
+        ByteBuffer mapped = glMapBufferRange(GL_ARRAY_BUFFER, (long)cursor * Float.BYTES, (long)size * Float.BYTES,
+                access);
+        if (mapped == null) {
+            throw new IllegalStateException("Failed to map vertex buffer range");
+        }
+        memCopy(memAddress(staging), memAddress(mapped), (long)size * Float.BYTES);
+        glUnmapBuffer(GL_ARRAY_BUFFER);
+        clearDirty(size);
+
+        lastOffset = cursor;
+        int vertexSize = getVertexSize();
+        cursor += ((size + vertexSize - 1) / vertexSize) * vertexSize;                                                  // Keep the next offset a whole number of vertices so that it can be used as a base vertex.
+        return lastOffset;
+    }
+}
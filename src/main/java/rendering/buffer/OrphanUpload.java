@@ -0,0 +1,67 @@
+package rendering.buffer;
+
+import org.lwjgl.BufferUtils;
+import rendering.GLState;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * This class uploads vertices by orphaning the vertex buffer, then copying from off-heap staging memory with
+ * `glBufferSubData`.
+ * Orphaning hands the driver fresh storage so that it need not wait for pending draws to finish reading the old one.
+ * Since orphaned contents are lost, everything from the start of the staging memory to the end of the dirty range is
+ * uploaded.
+ * Ranges found unchanged therefore only save an upload when nothing at all has changed.
+ */
+public class OrphanUpload extends VertexUpload {
+
+    // FIELDS
+    /**
+     * Off-heap staging memory that vertices are written into.
+     */
+    private final FloatBuffer staging;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs an OrphanUpload instance.
+     *
+     * @param capacity maximum number of floats that can be written before each upload
+     * @param vertexSize number of floats in each vertex
+     */
+    public OrphanUpload(int capacity, int vertexSize) {
+        super(capacity, vertexSize);
+        this.staging = BufferUtils.createFloatBuffer(capacity);
+        glBufferData(GL_ARRAY_BUFFER, (long)capacity * Float.BYTES, GL_STREAM_DRAW);
+    }
+
+
+    // METHODS
+    @Override
+    public FloatBuffer begin() {
+
+        return staging;
+    }
+
+
+    @Override
+    public int end() {
+
+        GLState.bindBuffer(GL_ARRAY_BUFFER, getVboId());
+
+        int numUploaded = 0;
+
+        if (isDirty()) {
+
+            numUploaded = Math.max(getDirtyEnd(), getUnchangedEnd());                                                   // Unchanged ranges are lost with the old storage, so they must be uploaded too.
+            glBufferData(GL_ARRAY_BUFFER, (long)getCapacity() * Float.BYTES, GL_STREAM_DRAW);                           // Orphan old storage.
+            staging.limit(numUploaded);
+            glBufferSubData(GL_ARRAY_BUFFER, 0, staging);                                                               // Upload only the used prefix.
+            staging.clear();
+        }
+        clearDirty(numUploaded);
+        return 0;
+    }
+}
@@ -0,0 +1,82 @@
+package rendering.buffer;
+
+import org.joml.Vector4f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * This class holds helpers for writing packed vertex attributes.
+ * Packed vertices store colors as four normalized unsigned bytes and texture coordinates as normalized unsigned shorts
+ * rather than as floats, which roughly halves the size of each vertex.
+ */
+public class PackedVertex {
+
+    // FIELDS
+    /**
+     * Boolean indicating whether the native byte order is little-endian (true) or big-endian (false).
+     */
+    private static final boolean littleEndian = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+
+    // CONSTRUCTOR
+    /**
+     * Prevents instantiation of this class.
+     */
+    private PackedVertex() {}
+
+
+    // METHODS
+    /**
+     * Writes a color as four unsigned bytes in the order red, green, blue, alpha.
+     * This is the layout read by a GL_UNSIGNED_BYTE attribute with four components.
+     *
+     * @param bytes memory to write into, in native byte order
+     * @param offset offset (in bytes) to write at
+     * @param rgba color packed as 0xRRGGBBAA
+     */
+    public static void putColor(ByteBuffer bytes, int offset, int rgba) {
+
+        bytes.putInt(offset, littleEndian ? Integer.reverseBytes(rgba) : rgba);                                         // Red must land in the lowest address.
+    }
+
+
+    /**
+     * Converts a value from zero to one into a normalized unsigned short.
+     *
+     * @param value value (normalized from zero to one)
+     * @return normalized unsigned short, as read by a normalized GL_UNSIGNED_SHORT attribute
+     */
+    public static short unorm16(float value) {
+
+        return (short)(value * 65535 + 0.5f);
+    }
+
+
+    /**
+     * Packs a color into a single integer.
+     *
+     * @param color color (r, g, b, a), from 0 to 255
+     * @return color packed as 0xRRGGBBAA
+     */
+    public static int packColor(Vector4f color) {
+
+        return ((int)color.x << 24) | ((int)color.y << 16) | ((int)color.z << 8) | (int)color.w;
+    }
+
+
+    /**
+     * Packs a color into a single integer.
+     *
+     * @param r red (normalized from zero to one)
+     * @param g green (normalized from zero to one)
+     * @param b blue (normalized from zero to one)
+     * @param a alpha (normalized from zero to one)
+     * @return color packed as 0xRRGGBBAA
+     */
+    public static int packColor(float r, float g, float b, float a) {
+
+        return ((int)(r * 255 + 0.5f) << 24) | ((int)(g * 255 + 0.5f) << 16) | ((int)(b * 255 + 0.5f) << 8)
+                | (int)(a * 255 + 0.5f);
+    }
+}
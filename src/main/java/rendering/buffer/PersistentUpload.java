@@ -0,0 +1,239 @@
+package rendering.buffer;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import rendering.GLState;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.ARBBufferStorage.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.GL_MAP_WRITE_BIT;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * This class uploads vertices through a persistently mapped vertex buffer (GL_ARB_buffer_storage) split into rotating
+ * regions.
+ * The vertex buffer is mapped once upon construction and vertices are written straight into mapped memory, so no copy
+ * is needed to upload them.
+ * Each region is guarded by a fence so that it is never overwritten while the GPU may still be reading from it.
+ * A region may hold several consecutive uploads (ex. every flush of a batch in one frame), in which case it is only
+ * fenced once all of them have been drawn, or once the frame ends.
+ */
+public class PersistentUpload extends VertexUpload {
+
+    // FIELDS
+    /**
+     * Number of regions in the vertex buffer.
+     * At least three regions are used so that the CPU can write to one region while the GPU reads from the others.
+     */
+    private final int numRegions;
+
+    /**
+     * Number of uploads that each region holds.
+     */
+    private final int uploadsPerRegion;
+
+    /**
+     * Writable memory for each upload of each region, ordered by region; each entry is a view into mapped GPU memory.
+     */
+    private final FloatBuffer[] slots;
+
+    /**
+     * Fence sync objects guarding each region; 0 is a flag that states no fence is pending.
+     */
+    private final long[] fences;
+
+    /**
+     * Index of the region currently being written to.
+     */
+    private int currentRegion;
+
+    /**
+     * Index of the upload currently being written to within the current region.
+     */
+    private int currentUpload;
+
+
+    // CONSTRUCTORS
+    /**
+     * Constructs a PersistentUpload instance with three regions, each holding a single upload.
+     *
+     * @param capacity maximum number of floats that can be written before each upload
+     * @param vertexSize number of floats in each vertex
+     */
+    public PersistentUpload(int capacity, int vertexSize) {
+        this(capacity, vertexSize, 3, 1);
+    }
+
+
+    /**
+     * Constructs a PersistentUpload instance.
+     *
+     * @param capacity maximum number of floats that can be written before each upload
+     * @param vertexSize number of floats in each vertex
+     * @param numRegions number of regions (at least three)
+     * @param uploadsPerRegion number of uploads that each region holds (at least one)
+     */
+    public PersistentUpload(int capacity, int vertexSize, int numRegions, int uploadsPerRegion) {
+        super(capacity, vertexSize);
+        this.numRegions = Math.max(3, numRegions);
+        this.uploadsPerRegion = Math.max(1, uploadsPerRegion);
+        this.slots = new FloatBuffer[this.numRegions * this.uploadsPerRegion];
+        this.fences = new long[this.numRegions];
+        init();
+    }
+
+
+    // METHODS
+    @Override
+    public FloatBuffer begin() {
+
+        waitForFence(currentRegion);                                                                                    // Only ever waits when first writing to a region.
+        return slots[currentRegion * uploadsPerRegion + currentUpload];
+    }
+
+
+    @Override
+    public int end() {
+
+        GLState.bindBuffer(GL_ARRAY_BUFFER, getVboId());
+        clearDirty(isDirty() ? (getDirtyEnd() - getDirtyStart()) : 0);                                                  // Memory is mapped coherently, so vertices are already visible to the GPU.
+        return (currentRegion * uploadsPerRegion + currentUpload) * getCapacity();
+    }
+
+
+    /**
+     * Vertices are written straight into mapped GPU memory rather than staged, so writing them is itself the upload.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isStaged() {
+
+        return false;
+    }
+
+
+    @Override
+    public void delete() {
+
+        for (int i = 0; i < numRegions; i++) {
+
+            if (fences[i] != 0) {
+
+                glDeleteSync(fences[i]);
+                fences[i] = 0;
+            }
+        }
+        super.delete();                                                                                                 // Deleting the vertex buffer also unmaps it.
+    }
+
+
+    /**
+     * Moves on to the next upload of the current region.
+     * If the current region is full, it is guarded with a fence and the next region is used instead.
+     */
+    @Override
+    public void fence() {
+
+        currentUpload++;
+
+        if (currentUpload == uploadsPerRegion) {
+
+            fenceRegion();
+        }
+    }
+
+
+    /**
+     * Guards the current region with a fence if anything was uploaded into it, so that the next frame starts in a new
+     * region.
+     */
+    @Override
+    public void endFrame() {
+
+        if (currentUpload > 0) {
+
+            fenceRegion();
+        }
+    }
+
+
+    /**
+     * Guards the current region with a fence, then moves on to the first upload of the next region.
+     */
+    private void fenceRegion() {
+
+        if (fences[currentRegion] != 0) {
+
+            glDeleteSync(fences[currentRegion]);                                                                        // Region was not written to since its last fence; the new fence supersedes it.
+        }
+        fences[currentRegion] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        currentRegion = (currentRegion + 1) % numRegions;
+        currentUpload = 0;
+    }
+
+
+    /**
+     * Allocates and persistently maps the vertex buffer.
+     *
+     * @throws IllegalStateException if the vertex buffer cannot be mapped
+     */
+    private void init() {
+
+        int slotBytes = getCapacity() * Float.BYTES;
+        long totalSize = (long)slotBytes * slots.length;
+        int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+        glBufferStorage(GL_ARRAY_BUFFER, totalSize, flags);                                                             // Immutable storage that may remain mapped while drawing.
+        ByteBuffer mapped = glMapBufferRange(GL_ARRAY_BUFFER, 0, totalSize, flags);
+        if (mapped == null) {
+            throw new IllegalStateException("Failed to persistently map vertex buffer");
+        }
+
+        for (int i = 0; i < slots.length; i++) {
+
+            slots[i] = mapped.slice(i * slotBytes, slotBytes)
+                    .order(ByteOrder.nativeOrder())                                                                     // Slicing resets byte order, so it must be restored.
+                    .asFloatBuffer();
+        }
+    }
+
+
+    /**
+     * Waits until the GPU has finished reading from the specified region, if necessary.
+     *
+     * @param region index of target region
+     */
+    private void waitForFence(int region) {
+
+        long fence = fences[region];
+
+        if (fence != 0) {
+
+            int result = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000_000L);                           // Wait up to one second at a time.
+
+            while (result == GL_TIMEOUT_EXPIRED) {
+
+                result = glClientWaitSync(fence, 0, 1_000_000_000L);
+            }
+            glDeleteSync(fence);
+            fences[region] = 0;
+        }
+    }
+
+
+    /**
+     * Checks whether persistent buffer mapping is supported by the current OpenGL context.
+     *
+     * @return whether persistent buffer mapping is supported (true) or not (false)
+     */
+    public static boolean isSupported() {
+
+        GLCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL44 || capabilities.GL_ARB_buffer_storage;
+    }
+}
@@ -0,0 +1,86 @@
+package rendering.buffer;
+
+import rendering.GLState;
+
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * This class holds a single element buffer of quad indices shared by all batches.
+ * Every batch draws quads whose four vertices are ordered clockwise from the top-right corner, so the same indices
+ * serve every batch; only the number of quads drawn and the base vertex differ between draws.
+ */
+public class QuadIndexBuffer {
+
+    // FIELDS
+    /**
+     * Element buffer object ID; 0 is a flag that states the buffer has not been generated yet.
+     */
+    private static int eboId = 0;
+
+    /**
+     * Number of quads that the element buffer currently holds indices for.
+     */
+    private static int capacity = 0;
+
+
+    // CONSTRUCTOR
+    /**
+     * Prevents instantiation of this class.
+     */
+    private QuadIndexBuffer() {}
+
+
+    // METHODS
+    /**
+     * Binds the shared element buffer to GL_ELEMENT_ARRAY_BUFFER, growing it first if it holds indices for fewer than
+     * the specified number of quads.
+     * Since element buffer bindings are stored in vertex array objects, this should be called while the vertex array
+     * object that will draw with it is bound.
+     * Growing keeps the same buffer object, so vertex array objects already bound to it remain valid.
+     *
+     * @param numQuads minimum number of quads that must be able to be drawn
+     */
+    public static void bind(int numQuads) {
+
+        if (eboId == 0) {
+
+            eboId = glGenBuffers();
+        }
+        GLState.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
+
+        if (numQuads > capacity) {
+
+            capacity = Math.max(numQuads, capacity * 2);
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, generateIndices(capacity), GL_STATIC_DRAW);
+        }
+    }
+
+
+    /**
+     * Generates indices for the specified number of quads.
+     *
+     * @param numQuads number of quads
+     * @return indices
+     */
+    private static int[] generateIndices(int numQuads) {
+
+        int[] elements = new int[6 * numQuads];                                                                         // 6 indices per quad (3 per triangle).
+
+        for (int i = 0; i < numQuads; i++) {
+
+            int offsetArrayIndex = 6 * i;
+            int offset = 4 * i;
+
+            // Triangle 1.
+            elements[offsetArrayIndex] = offset + 3;
+            elements[offsetArrayIndex + 1] = offset + 2;
+            elements[offsetArrayIndex + 2] = offset + 0;
+
+            // Triangle 2.
+            elements[offsetArrayIndex + 3] = offset + 0;
+            elements[offsetArrayIndex + 4] = offset + 2;
+            elements[offsetArrayIndex + 5] = offset + 1;
+        }
+        return elements;
+    }
+}
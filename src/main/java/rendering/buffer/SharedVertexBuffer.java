@@ -0,0 +1,349 @@
+package rendering.buffer;
+
+import rendering.GLState;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.glGenTextures;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL30.GL_RGBA32UI;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL31.GL_TEXTURE_BUFFER;
+import static org.lwjgl.opengl.GL31.glTexBuffer;
+
+/**
+ * This class holds a single large vertex buffer and vertex array object shared by every batch of one vertex format.
+ * Each frame, every batch is given its own range of the vertex buffer, and all ranges are uploaded together.
+ * Batches then draw from their range by base vertex, so switching between batches only changes draw offsets rather
+ * than binding different buffer or vertex array objects.
+ * Once every range has been filled, staged uploads hash each range, so ranges whose vertices are identical to those of
+ * the previous frame (ex. static backgrounds or HUD elements resubmitted every frame) are not uploaded again where the
+ * upload allows it.
+ * Uploads that write straight into GPU memory cannot skip anything, so ranges are not hashed for them at all.
+ * GPU objects are created on the first call to `begin()`, since a GL context may not exist upon construction.
+ */
+public class SharedVertexBuffer {
+
+    // FIELDS
+    /**
+     * Strategy used to upload vertices to the GPU.
+     */
+    private final UploadMode uploadMode;
+
+    /**
+     * Maximum number of quads drawn by any single draw call from this buffer.
+     * This is used to size the shared quad index buffer.
+     */
+    private final int maxQuadsPerDraw;
+
+    /**
+     * Vertex array object ID; 0 is a flag that states the vertex array object has not been generated yet.
+     */
+    private int vaoId = 0;
+
+    /**
+     * Vertex upload that all ranges are uploaded through together.
+     */
+    private VertexUpload vertexUpload;
+
+    /**
+     * Maximum number of floats that can be allocated across all ranges each frame.
+     */
+    private int capacity;
+
+    /**
+     * Memory provided by the vertex upload for the current frame, which every range is written into.
+     */
+    private FloatBuffer vertices;
+
+    /**
+     * Byte view of the memory provided by the vertex upload for the current frame, used to write packed vertices.
+     */
+    private ByteBuffer bytes;
+
+    /**
+     * Number of floats allocated to ranges since the last call to `begin()`.
+     */
+    private int numAllocated;
+
+    /**
+     * Offset (in floats) of each range allocated this frame, in allocation order.
+     * Entries past the ranges allocated this frame are left over from previous frames.
+     */
+    private int[] rangeOffsets = new int[64];
+
+    /**
+     * Number of floats in each range allocated this frame, parallel to the offsets of ranges.
+     */
+    private int[] rangeCounts = new int[64];
+
+    /**
+     * Content hash of each range when it was last uploaded, parallel to the offsets of ranges.
+     * A hash is only kept while its range is allocated with the same offset and size in consecutive frames.
+     */
+    private long[] rangeHashes = new long[64];
+
+    /**
+     * Number of ranges allocated since the last call to `begin()`.
+     */
+    private int numRanges;
+
+    /**
+     * Number of ranges allocated in the previous frame.
+     */
+    private int numPreviousRanges;
+
+    /**
+     * Offset (in floats) of the most recent upload from the start of the vertex buffer.
+     */
+    private int uploadOffset;
+
+    /**
+     * Number of times the vertex buffer has been created.
+     * Attribute pointers reference a specific vertex buffer, so batches compare this against the value they last set
+     * attribute pointers for to know when attribute pointers must be set again.
+     */
+    private int generation;
+
+    /**
+     * Buffer texture ID viewing the vertex buffer; 0 is a flag that states the buffer texture has not been generated
+     * yet.
+     */
+    private int bufferTextureId = 0;
+
+    /**
+     * Generation of the vertex buffer that the buffer texture was last attached to; -1 means never.
+     */
+    private int bufferTextureGeneration = -1;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a SharedVertexBuffer instance.
+     *
+     * @param uploadMode strategy used to upload vertices to the GPU
+     * @param initialCapacity number of floats that can be allocated across all ranges each frame before growing
+     * @param maxQuadsPerDraw maximum number of quads drawn by any single draw call from this buffer
+     */
+    public SharedVertexBuffer(UploadMode uploadMode, int initialCapacity, int maxQuadsPerDraw) {
+        this.uploadMode = uploadMode;
+        this.capacity = initialCapacity;
+        this.maxQuadsPerDraw = maxQuadsPerDraw;
+    }
+
+
+    // METHODS
+    /**
+     * Begins a frame of allocations.
+     * The vertex buffer is recreated first if it cannot hold the specified number of floats or uses a different vertex
+     * size.
+     *
+     * @param numFloats total number of floats that will be allocated this frame
+     * @param vertexSize number of floats in each vertex
+     * @return writable memory that every range is written into, indexed from zero up to the capacity
+     */
+    public FloatBuffer begin(int numFloats, int vertexSize) {
+
+        if ((vertexUpload == null) || (numFloats > capacity) || (vertexSize != vertexUpload.getVertexSize())) {
+
+            create(numFloats, vertexSize);
+        }
+        vertices = vertexUpload.begin();
+        bytes = vertexUpload.asBytes(vertices);
+        numAllocated = 0;
+        numRanges = 0;
+        return vertices;
+    }
+
+
+    /**
+     * Allocates a range of floats for the current frame.
+     * Ranges are allocated one after another, and each starts on a vertex boundary as long as every range is a whole
+     * number of vertices.
+     *
+     * @param numFloats number of floats in the range
+     * @return offset (in floats) of the range within the memory returned by `begin()`
+     * @throws IllegalStateException if more floats are allocated than were declared in `begin()`
+     */
+    public int allocate(int numFloats) {
+
+        if (numAllocated + numFloats > capacity) {
+
+            throw new IllegalStateException("Shared vertex buffer is full (" + capacity + " floats)");
+        }
+        int offset = numAllocated;
+        numAllocated += numFloats;
+
+        if (numRanges == rangeOffsets.length) {
+
+            rangeOffsets = Arrays.copyOf(rangeOffsets, numRanges * 2);
+            rangeCounts = Arrays.copyOf(rangeCounts, numRanges * 2);
+            rangeHashes = Arrays.copyOf(rangeHashes, numRanges * 2);
+        }
+
+        if ((numRanges >= numPreviousRanges) || (rangeOffsets[numRanges] != offset)
+                || (rangeCounts[numRanges] != numFloats)) {
+
+            rangeOffsets[numRanges] = offset;                                                                           // Range has moved, so its previous contents cannot be compared against.
+            rangeCounts[numRanges] = numFloats;
+            rangeHashes[numRanges] = VertexUpload.NO_HASH;
+        }
+        numRanges++;
+        return offset;
+    }
+
+
+    /**
+     * Uploads every range allocated this frame in one upload.
+     * If the upload is staged, each range is hashed first, and ranges identical to the previous frame are left out of
+     * the upload where possible; otherwise, everything allocated is simply marked as written.
+     * All ranges must have been written beforehand.
+     * The vertex buffer is left bound to GL_ARRAY_BUFFER.
+     */
+    public void end() {
+
+        if (!vertexUpload.isStaged()) {
+
+            if (numAllocated > 0) {
+                vertexUpload.markDirty(0, numAllocated);                                                                // Ranges are contiguous from the start.
+            }
+        } else {
+
+            for (int i = 0; i < numRanges; i++) {
+                rangeHashes[i] = vertexUpload.markWritten(bytes, rangeOffsets[i], rangeCounts[i], rangeHashes[i]);
+            }
+        }
+        numPreviousRanges = numRanges;
+        uploadOffset = vertexUpload.end();
+        vertices = null;
+        bytes = null;
+    }
+
+
+    /**
+     * Binds the shared vertex array object, and binds the vertex buffer to GL_ARRAY_BUFFER so that attribute pointers
+     * can be set.
+     * Every batch drawing from this buffer draws while they are bound.
+     * They are left bound after drawing; whatever draws next binds its own.
+     */
+    public void bind() {
+
+        GLState.bindVertexArray(vaoId);
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vertexUpload.getVboId());
+    }
+
+
+    /**
+     * Binds a buffer texture viewing the vertex buffer to GL_TEXTURE_BUFFER on a texture unit.
+     * Each texel is four unsigned integers, so shaders can fetch records of any layout with `texelFetch()` and
+     * reinterpret their contents rather than reading them through vertex attributes.
+     * The buffer texture is created on first use and attached to the vertex buffer again whenever it is recreated.
+     *
+     * @param unit texture unit (0 for GL_TEXTURE0, 1 for GL_TEXTURE1, etc.)
+     */
+    public void bindBufferTexture(int unit) {
+
+        if (bufferTextureId == 0) {
+
+            bufferTextureId = glGenTextures();
+        }
+        GLState.bindTexture(unit, GL_TEXTURE_BUFFER, bufferTextureId);
+
+        if (bufferTextureGeneration != generation) {
+
+            glTexBuffer(GL_TEXTURE_BUFFER, GL_RGBA32UI, vertexUpload.getVboId());
+            bufferTextureGeneration = generation;
+        }
+    }
+
+
+    /**
+     * Marks that all draw calls reading the most recent upload have been issued.
+     */
+    public void fence() {
+
+        vertexUpload.fence();
+    }
+
+
+    /**
+     * Deletes the vertex buffer, vertex array object, and buffer texture.
+     * They are created again when next needed.
+     */
+    public void delete() {
+
+        if (bufferTextureId != 0) {
+
+            GLState.deleteTexture(bufferTextureId);
+            bufferTextureId = 0;
+            bufferTextureGeneration = -1;
+        }
+
+        if (vertexUpload != null) {
+
+            vertexUpload.delete();
+            vertexUpload = null;
+        }
+
+        if (vaoId != 0) {
+
+            GLState.deleteVertexArray(vaoId);
+            vaoId = 0;
+        }
+    }
+
+
+    /**
+     * Creates (or recreates) the vertex buffer, and creates the vertex array object if it does not exist yet.
+     * The capacity is at least doubled when growing so that recreation is rare.
+     *
+     * @param numFloats minimum number of floats that must be able to be allocated each frame
+     * @param vertexSize number of floats in each vertex
+     */
+    private void create(int numFloats, int vertexSize) {
+
+        if (vaoId == 0) {
+
+            vaoId = glGenVertexArrays();
+        }
+        GLState.bindVertexArray(vaoId);
+
+        // Bind shared quad indices buffer.
+        QuadIndexBuffer.bind(maxQuadsPerDraw);
+
+        // Allocate space for vertices.
+        if (vertexUpload != null) {
+
+            vertexUpload.delete();
+        }
+
+        if (numFloats > capacity) {
+
+            capacity = Math.max(numFloats, capacity * 2);
+        }
+        capacity -= capacity % vertexSize;                                                                              // Keep the capacity a whole number of vertices.
+        vertexUpload = uploadMode.create(capacity, vertexSize);
+        numPreviousRanges = 0;                                                                                          // New vertex buffer holds nothing to compare against.
+        generation++;
+    }
+
+
+    // GETTERS
+    public int getUploadOffset() {
+        return uploadOffset;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public FloatBuffer getVertices() {
+        return vertices;
+    }
+
+    public ByteBuffer getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,62 @@
+package rendering.buffer;
+
+import org.lwjgl.BufferUtils;
+import rendering.GLState;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * This class uploads vertices by copying the dirty range from off-heap staging memory with `glBufferSubData`.
+ * Contents of the vertex buffer are retained between uploads, so only changed vertices ever need to be rewritten.
+ */
+public class SubDataUpload extends VertexUpload {
+
+    // FIELDS
+    /**
+     * Off-heap staging memory that vertices are written into.
+     */
+    private final FloatBuffer staging;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a SubDataUpload instance.
+     *
+     * @param capacity maximum number of floats that can be written before each upload
+     * @param vertexSize number of floats in each vertex
+     */
+    public SubDataUpload(int capacity, int vertexSize) {
+        super(capacity, vertexSize);
+        this.staging = BufferUtils.createFloatBuffer(capacity);
+        glBufferData(GL_ARRAY_BUFFER, (long)capacity * Float.BYTES, GL_DYNAMIC_DRAW);
+    }
+
+
+    // METHODS
+    @Override
+    public FloatBuffer begin() {
+
+        return staging;
+    }
+
+
+    @Override
+    public int end() {
+
+        GLState.bindBuffer(GL_ARRAY_BUFFER, getVboId());
+
+        int numUploaded = 0;
+
+        if (isDirty()) {
+
+            numUploaded = getDirtyEnd() - getDirtyStart();
+            staging.limit(getDirtyEnd()).position(getDirtyStart());
+            glBufferSubData(GL_ARRAY_BUFFER, (long)getDirtyStart() * Float.BYTES, staging);                             // Upload only the dirty range; unchanged ranges are already in place.
+            staging.clear();
+        }
+        clearDirty(numUploaded);
+        return 0;
+    }
+}
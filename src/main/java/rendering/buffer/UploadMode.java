@@ -0,0 +1,75 @@
+package rendering.buffer;
+
+/**
+ * This enum defines the strategies available for uploading batch vertices to the GPU.
+ * The fastest strategy varies between drivers, so one is selected at startup.
+ */
+public enum UploadMode {
+
+    /**
+     * Dirty range copied from off-heap staging memory with `glBufferSubData`.
+     */
+    SUB_DATA,
+
+    /**
+     * Vertex buffer orphaned, then used prefix copied from off-heap staging memory with `glBufferSubData`.
+     */
+    ORPHAN,
+
+    /**
+     * Used prefix appended through an unsynchronized `glMapBufferRange`, copied from off-heap staging memory.
+     */
+    MAP_RANGE,
+
+    /**
+     * Vertices written straight into a persistently mapped, fenced ring of regions.
+     * Falls back to orphaning if persistent buffer mapping is not supported.
+     */
+    PERSISTENT;
+
+
+    // METHODS
+    /**
+     * Creates a vertex upload using this strategy.
+     * This must be called while the target vertex array object is bound, since the new vertex buffer is left bound to
+     * GL_ARRAY_BUFFER for attribute pointers to be set.
+     *
+     * @param capacity maximum number of floats that can be written before each upload
+     * @param vertexSize number of floats in each vertex
+     * @return vertex upload
+     */
+    public VertexUpload create(int capacity, int vertexSize) {
+
+        return create(capacity, vertexSize, 1);
+    }
+
+
+    /**
+     * Creates a vertex upload using this strategy, sized for the specified number of uploads per frame.
+     * Uploads that rotate through fenced regions make each region large enough for this many uploads, so that a
+     * frame never waits on draw calls issued earlier in the same frame.
+     * This must be called while the target vertex array object is bound, since the new vertex buffer is left bound to
+     * GL_ARRAY_BUFFER for attribute pointers to be set.
+     *
+     * @param capacity maximum number of floats that can be written before each upload
+     * @param vertexSize number of floats in each vertex
+     * @param uploadsPerFrame expected number of uploads each frame
+     * @return vertex upload
+     */
+    public VertexUpload create(int capacity, int vertexSize, int uploadsPerFrame) {
+
+        switch (this) {
+            case SUB_DATA:
+                return new SubDataUpload(capacity, vertexSize);
+            case MAP_RANGE:
+                return new MapRangeUpload(capacity, vertexSize);
+            case PERSISTENT:
+                if (PersistentUpload.isSupported()) {
+                    return new PersistentUpload(capacity, vertexSize, 3, uploadsPerFrame);
+                }
+                return new OrphanUpload(capacity, vertexSize);
+            default:
+                return new OrphanUpload(capacity, vertexSize);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package rendering.buffer;
+
+import rendering.GLState;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.IdentityHashMap;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.system.MemoryUtil.memAddress;
+import static org.lwjgl.system.MemoryUtil.memByteBuffer;
+
+/**
+ * This class uploads vertices written on the CPU to a vertex buffer on the GPU.
+ * Subclasses define the strategy used to perform the upload.
+ * Writers mark the range of floats they have written as dirty; only the dirty range is ever uploaded, and memory is
+ * never zeroed, since only written vertices are drawn.
+ * Writers that resubmit the same vertices every frame may instead mark written ranges by content hash, so that ranges
+ * found unchanged since the previous upload are not uploaded again.
+ * Counters of uploads and of bytes saved by skipping unchanged ranges are shared by every vertex upload.
+ */
+public abstract class VertexUpload {
+
+    // FIELDS
+    /**
+     * Hash value that never matches the contents of any range.
+     * Writers pass this the first time a range is written, or whenever the range has moved.
+     */
+    public static final long NO_HASH = 0;
+
+    /**
+     * Total number of uploads that transferred vertices to the GPU.
+     */
+    private static long numUploads;
+
+    /**
+     * Total number of uploads skipped entirely because every written range was unchanged.
+     */
+    private static long numSkippedUploads;
+
+    /**
+     * Total number of bytes transferred to the GPU by uploads.
+     */
+    private static long bytesUploaded;
+
+    /**
+     * Total number of bytes written by writers but not transferred to the GPU because they were unchanged.
+     */
+    private static long bytesSaved;
+
+    /**
+     * Maximum number of floats that can be written before each upload.
+     */
+    private final int capacity;
+
+    /**
+     * Number of floats in each vertex.
+     * Offsets returned by uploads are always a multiple of this so that they can be used as base vertices.
+     */
+    private final int vertexSize;
+
+    /**
+     * Vertex buffer object ID.
+     */
+    private final int vboId;
+
+    /**
+     * First float (inclusive) of the range written since the last upload.
+     */
+    private int dirtyStart = Integer.MAX_VALUE;
+
+    /**
+     * Last float (exclusive) of the range written since the last upload.
+     */
+    private int dirtyEnd = 0;
+
+    /**
+     * Last float (exclusive) of all ranges found unchanged since the last upload.
+     */
+    private int unchangedEnd = 0;
+
+    /**
+     * Number of floats in all ranges marked (dirty or unchanged) since the last upload.
+     */
+    private int numWritten = 0;
+
+    /**
+     * Map to store byte views of memory returned by `begin()`; memory is the key, its byte view is the value.
+     * Each upload only ever returns a few distinct blocks of memory, so views are created once and reused.
+     */
+    private final IdentityHashMap<FloatBuffer, ByteBuffer> byteViews = new IdentityHashMap<>();
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a VertexUpload instance.
+     * The vertex buffer is generated and left bound to GL_ARRAY_BUFFER upon construction so that subclasses can
+     * allocate its storage.
+     *
+     * @param capacity maximum number of floats that can be written before each upload
+     * @param vertexSize number of floats in each vertex
+     */
+    public VertexUpload(int capacity, int vertexSize) {
+        this.capacity = capacity;
+        this.vertexSize = vertexSize;
+        this.vboId = glGenBuffers();
+        GLState.bindBuffer(GL_ARRAY_BUFFER, vboId);
+    }
+
+
+    // METHODS
+    /**
+     * Retrieves the memory to write vertices into.
+     * If the GPU may still be reading from this memory, this waits until it has finished.
+     *
+     * @return writable memory, indexed from zero up to the capacity
+     */
+    public abstract FloatBuffer begin();
+
+
+    /**
+     * Uploads the dirty range and clears it.
+     * The vertex buffer is left bound to GL_ARRAY_BUFFER.
+     *
+     * @return offset (in floats) of the written memory from the start of the vertex buffer
+     */
+    public abstract int end();
+
+
+    /**
+     * Retrieves a byte view of memory returned by `begin()`.
+     * This is used to write packed vertices whose attributes are not all floats; offsets into the view are four times
+     * the equivalent float offsets.
+     *
+     * @param memory memory returned by `begin()`
+     * @return byte view of the same memory, in native byte order
+     */
+    public ByteBuffer asBytes(FloatBuffer memory) {
+
+        ByteBuffer bytes = byteViews.get(memory);
+
+        if (bytes == null) {
+
+            bytes = memByteBuffer(memAddress(memory, 0), memory.capacity() * Float.BYTES);
+            byteViews.put(memory, bytes);
+        }
+        return bytes;
+    }
+
+
+    /**
+     * Marks that all draw calls reading the most recent upload have been issued.
+     * By default, nothing needs to be done.
+     */
+    public void fence() {}
+
+
+    /**
+     * Marks that all draw calls of the current frame reading from this upload have been issued.
+     * By default, nothing needs to be done.
+     */
+    public void endFrame() {}
+
+
+    /**
+     * Deletes the vertex buffer and any other GPU objects held by this upload.
+     * This upload must not be used afterward.
+     */
+    public void delete() {
+
+        GLState.deleteBuffer(vboId);
+    }
+
+
+    /**
+     * Marks a range of floats as written since the last upload.
+     *
+     * @param first first float written
+     * @param count number of floats written
+     */
+    public void markDirty(int first, int count) {
+
+        dirtyStart = Math.min(dirtyStart, first);
+        dirtyEnd = Math.max(dirtyEnd, first + count);
+        numWritten += count;
+    }
+
+
+    /**
+     * Marks a range of floats as written since the last upload, unless its contents are identical to those it held when
+     * the range was last marked.
+     * Unchanged ranges are not uploaded again where the previous upload can still be drawn from, which saves both the
+     * copy and the bandwidth for vertices that are resubmitted every frame without changing.
+     * Hashing reads each float once, so it is far cheaper than the upload it may save.
+     * Uploads that write straight into GPU memory cannot skip anything, so ranges are simply marked dirty without being
+     * hashed.
+     *
+     * @param bytes byte view of the memory returned by `begin()`
+     * @param first first float written
+     * @param count number of floats written
+     * @param previousHash hash returned when this same range was last marked, or `NO_HASH`
+     * @return hash of the contents of the range, to be passed the next time this same range is marked
+     */
+    public long markWritten(ByteBuffer bytes, int first, int count, long previousHash) {
+
+        if (!isStaged()) {
+
+            markDirty(first, count);
+            return NO_HASH;
+        }
+        long hash = hash(bytes, first * Float.BYTES, (first + count) * Float.BYTES);
+
+        if ((previousHash != NO_HASH) && (hash == previousHash)) {
+
+            unchangedEnd = Math.max(unchangedEnd, first + count);
+            numWritten += count;
+        } else {
+
+            markDirty(first, count);
+        }
+        return hash;
+    }
+
+
+    /**
+     * Checks whether this upload copies from staging memory that retains its contents between uploads.
+     * Only staged uploads can skip ranges found unchanged.
+     * By default, uploads are staged.
+     *
+     * @return whether this upload is staged (true) or not (false)
+     */
+    public boolean isStaged() {
+
+        return true;
+    }
+
+
+    /**
+     * Checks whether any floats have been written since the last upload.
+     *
+     * @return whether floats have been written (true) or not (false)
+     */
+    protected boolean isDirty() {
+
+        return dirtyEnd > dirtyStart;
+    }
+
+
+    /**
+     * Clears the dirty range and updates upload counters.
+     * This must be called by every upload, even if nothing was dirty.
+     *
+     * @param numUploaded number of floats transferred to the GPU by this upload
+     */
+    protected void clearDirty(int numUploaded) {
+
+        if (numUploaded > 0) {
+
+            numUploads++;
+            bytesUploaded += (long)numUploaded * Float.BYTES;
+        } else if (numWritten > 0) {
+
+            numSkippedUploads++;
+        }
+        bytesSaved += (long)Math.max(0, numWritten - numUploaded) * Float.BYTES;
+        dirtyStart = Integer.MAX_VALUE;
+        dirtyEnd = 0;
+        unchangedEnd = 0;
+        numWritten = 0;
+    }
+
+
+    /**
+     * Hashes a range of memory.
+     * Eight bytes are consumed per step, each mixed in with a single multiply, so this runs at close to memory speed.
+     *
+     * @param bytes memory to hash
+     * @param start first byte (inclusive)
+     * @param end last byte (exclusive)
+     * @return hash; never `NO_HASH`
+     */
+    private static long hash(ByteBuffer bytes, int start, int end) {
+
+        long hash = 0xCBF29CE484222325L ^ (end - start);
+        int i = start;
+
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+
+            hash = Long.rotateLeft(hash ^ (bytes.getLong(i) * 0xC2B2AE3D27D4EB4FL), 31) * 0x9E3779B97F4A7C15L;
+        }
+
+        if (i < end) {
+
+            hash = Long.rotateLeft(hash ^ (bytes.getInt(i) * 0xC2B2AE3D27D4EB4FL), 31) * 0x9E3779B97F4A7C15L;           // Ranges are whole floats, so at most one float remains.
+        }
+        hash ^= hash >>> 29;
+        return (hash == NO_HASH) ? 1 : hash;
+    }
+
+
+    /**
+     * Resets all upload counters to zero.
+     */
+    public static void resetCounters() {
+
+        numUploads = 0;
+        numSkippedUploads = 0;
+        bytesUploaded = 0;
+        bytesSaved = 0;
+    }
+
+
+    // GETTERS
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getVertexSize() {
+        return vertexSize;
+    }
+
+    public int getVboId() {
+        return vboId;
+    }
+
+    protected int getDirtyStart() {
+        return dirtyStart;
+    }
+
+    protected int getDirtyEnd() {
+        return dirtyEnd;
+    }
+
+    protected int getUnchangedEnd() {
+        return unchangedEnd;
+    }
+
+    public static long getNumUploads() {
+        return numUploads;
+    }
+
+    public static long getNumSkippedUploads() {
+        return numSkippedUploads;
+    }
+
+    public static long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    public static long getBytesSaved() {
+        return bytesSaved;
+    }
+}
@@ -0,0 +1,149 @@
+package rendering.drawable;
+
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+/**
+ * This class pools batches so that their GPU objects are reused from frame to frame.
+ * Batches are acquired in order as they are needed during a frame and all released together at the end of the frame.
+ * The pool tracks the most batches needed in any frame over a window of recent frames (its high-water mark); at the end
+ * of each window, batches beyond the high-water mark are deleted, so a brief spike does not hold GPU memory forever.
+ *
+ * @param <T> batch type
+ */
+public class BatchPool<T extends PooledBatch> {
+
+    // FIELDS
+    /**
+     * Creates new batches when no pooled batch is available.
+     */
+    private final Supplier<T> factory;
+
+    /**
+     * Pooled batches; those in use this frame come first.
+     */
+    private final ArrayList<T> batches = new ArrayList<>();
+
+    /**
+     * Number of batches acquired this frame.
+     */
+    private int numInUse;
+
+    /**
+     * Most batches acquired in any frame during the current window.
+     */
+    private int highWaterMark;
+
+    /**
+     * Number of frames in each window, after which the pool is trimmed back to its high-water mark.
+     */
+    private final int windowSize;
+
+    /**
+     * Number of frames ended during the current window.
+     */
+    private int framesInWindow;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a BatchPool instance.
+     *
+     * @param factory creates new batches when no pooled batch is available
+     * @param windowSize number of frames after which the pool is trimmed back to the most batches needed in any of them
+     */
+    public BatchPool(Supplier<T> factory, int windowSize) {
+        this.factory = factory;
+        this.windowSize = windowSize;
+    }
+
+
+    // METHODS
+    /**
+     * Acquires the next batch for this frame, creating one if none are pooled.
+     *
+     * @return batch
+     */
+    public T acquire() {
+
+        if (numInUse == batches.size()) {
+
+            batches.add(factory.get());
+        }
+        return batches.get(numInUse++);
+    }
+
+
+    /**
+     * Releases all batches acquired this frame back to the pool.
+     * Batches must have been flushed beforehand.
+     * If this ends the current window, pooled batches beyond the high-water mark of the window are deleted.
+     */
+    public void endFrame() {
+
+        highWaterMark = Math.max(highWaterMark, numInUse);
+        numInUse = 0;
+        framesInWindow++;
+
+        if (framesInWindow >= windowSize) {
+
+            trim(highWaterMark);
+            highWaterMark = 0;
+            framesInWindow = 0;
+        }
+    }
+
+
+    /**
+     * Deletes pooled batches until no more than the specified number remain.
+     * Only batches not in use this frame are deleted.
+     *
+     * @param maxBatches maximum number of batches to keep
+     */
+    public void trim(int maxBatches) {
+
+        maxBatches = Math.max(maxBatches, numInUse);
+
+        while (batches.size() > maxBatches) {
+
+            batches.remove(batches.size() - 1).delete();
+        }
+    }
+
+
+    /**
+     * Retrieves a batch acquired this frame.
+     *
+     * @param index index of batch in order acquired
+     * @return batch
+     */
+    public T get(int index) {
+
+        return batches.get(index);
+    }
+
+
+    /**
+     * Retrieves the last batch acquired this frame.
+     *
+     * @return batch, or null if none have been acquired this frame
+     */
+    public T getLast() {
+
+        return (numInUse > 0) ? batches.get(numInUse - 1) : null;
+    }
+
+
+    // GETTERS
+    public int getNumInUse() {
+        return numInUse;
+    }
+
+    public int getNumPooled() {
+        return batches.size();
+    }
+
+    public ArrayList<T> getBatches() {
+        return batches;
+    }
+}
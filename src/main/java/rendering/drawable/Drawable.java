@@ -34,6 +34,19 @@ public class Drawable {
      */
     private Sprite sprite;
 
+    /**
+     * Retained batch that this drawable is registered with.
+     * While registered, this drawable is a view over a handle in the drawable store of that batch; color and sprite
+     * changes are written through to the store immediately.
+     * This is null if this drawable is not registered with the renderer (i.e., if it is added every frame instead).
+     */
+    private RetainedBatch retainedBatch;
+
+    /**
+     * Handle (i.e., slot) of this drawable in the drawable store of its retained batch.
+     */
+    private int retainedSlot = -1;
+
 
     // CONSTRUCTORS
     /**
@@ -96,6 +109,10 @@ public class Drawable {
         return color;
     }
 
+    public Sprite getSprite() {
+        return sprite;
+    }
+
     public Texture getTexture() {
         return sprite.getTexture();
     }
@@ -104,17 +121,39 @@ public class Drawable {
         return sprite.getTextureCoords();
     }
 
+    public RetainedBatch getRetainedBatch() {
+        return retainedBatch;
+    }
+
+    public int getRetainedSlot() {
+        return retainedSlot;
+    }
+
 
     // SETTERS
     public void setColor(Vector4f color) {
         if (!this.color.equals(color)) {
             this.color.set(color);
+            if (retainedBatch != null) {
+                retainedBatch.getStore().setColor(retainedSlot, this.color);
+            }
         }
     }
 
     public void setSprite(Sprite sprite) {
         if (!this.sprite.equals(sprite)) {
             this.sprite = sprite;
+            if (retainedBatch != null) {
+                retainedBatch.updateSprite(this);
+            }
         }
     }
+
+    public void setRetainedBatch(RetainedBatch retainedBatch) {
+        this.retainedBatch = retainedBatch;
+    }
+
+    public void setRetainedSlot(int retainedSlot) {
+        this.retainedSlot = retainedSlot;
+    }
 }
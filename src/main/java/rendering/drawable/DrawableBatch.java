@@ -1,31 +1,30 @@
 package rendering.drawable;
 
 import core.GamePanel;
-import org.joml.Vector2f;
-import org.joml.Vector4f;
 import rendering.Shader;
 import rendering.Texture;
+import rendering.TextureArray;
+import rendering.buffer.IndirectCommandBuffer;
+import rendering.buffer.PackedVertex;
+import rendering.buffer.SharedVertexBuffer;
 import utility.AssetPool;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
-import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
 
 /**
  * This class holds a batch of drawables to be sent to the GPU and rendered in a single call.
  */
-public class DrawableBatch {
+public class DrawableBatch implements IndirectQuadBatch {
 
     /*
      * Vertex in Vertex Array
      * ======================
-     * Position         Color                          Texture coordinates     Texture ID
-     * float, float,    float, float, float, float,    float, float,           float
+     * Position         Color                   Texture coordinates     Texture layer
+     * float, float,    ubyte x 4 (packed),     ushort, ushort,         ubyte (followed by three bytes of padding)
      */
 
     // FIELDS
@@ -37,19 +36,20 @@ public class DrawableBatch {
     private final int positionSize = 2;
 
     /**
-     * Defines four color floats in the vertex array for each vertex.
+     * Defines four color bytes (normalized when read) in the vertex array for each vertex.
      */
     private final int colorSize = 4;
 
     /**
-     * Defines two texture coordinate floats in the vertex array for each vertex.
+     * Defines two texture coordinate shorts (normalized when read) in the vertex array for each vertex.
      */
     private final int textureCoordsSize = 2;
 
     /**
-     * Defines one texture ID float in the vertex array for each vertex.
+     * Defines one texture layer byte in the vertex array for each vertex.
+     * This is the layer of the texture in the bound array texture plus one; zero means no texture.
      */
-    private final int textureIdSize = 1;
+    private final int textureLayerSize = 1;
 
     /**
      * Defines the offset (in bytes) of the start of the position floats in the vertex array for each vertex.
@@ -58,24 +58,24 @@ public class DrawableBatch {
     private final int positionOffset = 0;
 
     /**
-     * Defines the offset (in bytes) of the start of the color floats in the vertex array for each vertex.
+     * Defines the offset (in bytes) of the start of the color bytes in the vertex array for each vertex.
      * Here, the color starts after the position in a vertex definition, so it has an offset determined by the position.
      */
     private final int colorOffset = positionOffset + positionSize * Float.BYTES;
 
     /**
-     * Defines the offset (in bytes) of the start of the texture coordinate floats in the vertex array for each vertex.
+     * Defines the offset (in bytes) of the start of the texture coordinate shorts in the vertex array for each vertex.
      * Here, the texture coordinates start after the color in a vertex definition, so it has an offset determined by the
      * color.
      */
-    private final int textureCoordsOffset = colorOffset + colorSize * Float.BYTES;
+    private final int textureCoordsOffset = colorOffset + colorSize * Byte.BYTES;
 
     /**
-     * Defines the offset (in bytes) of the start of the texture ID float in the vertex array for each vertex.
-     * Here, the texture ID starts after the texture coordinates in a vertex definition, so it has an offset determined
-     * by the texture coordinates.
+     * Defines the offset (in bytes) of the start of the texture layer byte in the vertex array for each vertex.
+     * Here, the texture layer starts after the texture coordinates in a vertex definition, so it has an offset
+     * determined by the texture coordinates.
      */
-    private final int textureIdOffset = textureCoordsOffset + textureCoordsSize * Float.BYTES;
+    private final int textureLayerOffset = textureCoordsOffset + textureCoordsSize * Short.BYTES;
 
     /**
      * Maximum number of drawables that can be added to this batch.
@@ -92,6 +92,17 @@ public class DrawableBatch {
      */
     private final Drawable[] drawables = new Drawable[maxBatchSize];
 
+    /**
+     * Array to store handles of quads added from a drawable store, parallel to the array of drawables.
+     * A handle is only meaningful where the corresponding drawable is null.
+     */
+    private final int[] handles = new int[maxBatchSize];
+
+    /**
+     * Drawable store holding quads added by handle since the last flush.
+     */
+    private DrawableStore store;
+
     /**
      * Boolean indicating whether any more drawables can be added to this batch.
      */
@@ -99,44 +110,45 @@ public class DrawableBatch {
 
     /**
      * Total number of floats in each vertex of the vertex array.
+     * Packed attributes are counted by the number of floats they occupy, so a vertex is 20 bytes.
      * Remember that a vertex represents a corner of a quad being rendered in this case.
      */
-    private final int vertexSize = 9;
+    private final int vertexSize = 5;
 
     /**
      * Vertex array.
-     * Note that there are four vertices per quad.
-     * We would like a number of drawables equal to the maximum batch size, hence the multiplication by four.
-     * Each drawable to render requires a quad.
+     * This is a byte view of the memory provided by the shared vertex buffer, which vertices are written straight into.
+     * It is null until this batch is allocated a range after a flush.
      */
-    private final float[] vertices = new float[maxBatchSize * 4 * vertexSize];
+    private ByteBuffer vertices;
 
     /**
-     * Vertex array object ID.
+     * Shared vertex buffer that this batch was last allocated a range of.
      */
-    private int vaoId;
+    private SharedVertexBuffer sharedBuffer;
 
     /**
-     * Vertex buffer object ID.
+     * Offset (in floats) of the range allocated to this batch within the vertex array.
      */
-    private int vboId;
+    private int rangeOffset;
 
     /**
-     * Slots available to bind textures for sampling during a draw in this batch.
-     * Here, the number available is limited eight textures to ensure that lower-end GPUs are supported, even though
-     * OpenGL specifies a minimum of 16 available slots.
-     * This will index into the appropriate texture from the textures list.
-     * In other words, this correlates directly to the textures in the textures list being bound in the GPU.
-     * Note that slot zero is reserved for the empty texture.
+     * Generation of the shared vertex buffer that attribute pointers were last set for; -1 means never.
      */
-    private final int[] textureSlots = {0, 1, 2, 3, 4, 5, 6, 7};
+    private int attributeGeneration = -1;
 
-    // TODO : Change textures to be a LimitedArrayList with maximum size of eight.
     /**
-     * List to store the textures available in this batch.
+     * Array texture sampled by this batch.
+     * Only drawables whose textures are layers of this array texture (or drawables without a texture) can be added.
+     * This is null until the first drawable with a texture is added after a flush.
      * As a reminder, a texture is an entire spritesheet, while a sprite is a section of a spritesheet (i.e., texture).
      */
-    private final ArrayList<Texture> textures = new ArrayList<>();
+    private TextureArray textureArray;
+
+    /**
+     * Writer that the properties of quads are staged into and that writes their vertices.
+     */
+    private final QuadWriter quadWriter;
 
     /**
      * Shader attached to this batch.
@@ -153,14 +165,12 @@ public class DrawableBatch {
     public DrawableBatch(GamePanel gp) {
         this.gp = gp;
         this.shader = AssetPool.getShader("/shaders/default.glsl");
-        init();
+        this.quadWriter = gp.getVertexFillMode().create(maxBatchSize);
     }
 
 
     // METHODS
-    /**
-     * Renders this batch then clears it of all drawables.
-     */
+    @Override
     public void flush() {
 
         render();
@@ -168,11 +178,7 @@ public class DrawableBatch {
     }
 
 
-    /**
-     * Adds a drawable to this batch.
-     *
-     * @param drawable Drawable instance to add
-     */
+    @Override
     public void addDrawable(Drawable drawable) {
 
         // Get index and add render object.
@@ -180,16 +186,11 @@ public class DrawableBatch {
         drawables[index] = drawable;
         numDrawables++;
 
-        // Check if drawable has texture; if so, add to list if not already loaded.
-        if (drawable.getTexture() != null) {
-            if (!textures.contains(drawable.getTexture())) {
-                textures.add(drawable.getTexture());
-            }
+        // Check if drawable has texture; if so, adopt its array texture if none is set yet.
+        if ((drawable.getTexture() != null) && (textureArray == null)) {
+            textureArray = drawable.getTexture().getTextureArray();
         }
 
-        // Add properties to local vertices array.
-        loadVertexProperties(index);
-
         // Check if batch has run out of room.
         if (numDrawables >= maxBatchSize) {
             hasRoom = false;
@@ -197,220 +198,205 @@ public class DrawableBatch {
     }
 
 
-    /**
-     * Renders all drawables in this batch.
-     */
-    private void render() {
+    @Override
+    public void addQuad(DrawableStore store, int handle) {
 
-        // Rebuffer all data.
-        glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
+        // Get index and add handle; properties are read straight from the store when vertices are filled.
+        int index = numDrawables;
+        drawables[index] = null;
+        handles[index] = handle;
+        this.store = store;
+        numDrawables++;
 
-        // Bind shader program.
-        shader.use();
+        // Check if batch has run out of room.
+        if (numDrawables >= maxBatchSize) {
+            hasRoom = false;
+        }
+    }
 
-        // Camera.
-        shader.uploadMat4f("uProjection", gp.getSystemCamera().getProjectionMatrix());
-        shader.uploadMat4f("uView", gp.getSystemCamera().getViewMatrix());
 
-        // Bind textures.
-        for (int i = 0; i < textures.size(); i++) {
-            glActiveTexture(GL_TEXTURE0 + i + 1);                                                                       // Activate texture in appropriate slot; slot 0 is reserved for the empty texture.
-            textures.get(i).bind();
-        }
-        shader.uploadIntArray("uTextures", textureSlots);                                                               // Use multiple textures in shader (up to seven plus the empty texture).
+    @Override
+    public void allocate(SharedVertexBuffer sharedBuffer) {
 
-        // Bind VAO being used.
-        glBindVertexArray(vaoId);
+        this.sharedBuffer = sharedBuffer;
+        vertices = sharedBuffer.getBytes();
+        rangeOffset = sharedBuffer.allocate(getNumFloats());
+    }
 
-        // Enable vertex attribute pointers.
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
 
-        // Draw.
-        glDrawElements(GL_TRIANGLES, (numDrawables * 6), GL_UNSIGNED_INT, 0);
+    @Override
+    public void fillVertices(int first, int last) {
 
-        // Unbind after drawing.
-        glDisableVertexAttribArray(0);
-        glDisableVertexAttribArray(1);
-        glBindVertexArray(0);                                                                                           // 0 is a flag that states to bind nothing.
-        shader.detach();                                                                                                // Detach shader program.
-        for (int i = 0; i < textures.size(); i++) {
-            textures.get(i).unbind();
+        for (int i = first; i < last; i++) {
+
+            if (drawables[i] != null) {
+                stageDrawable(i);
+            } else {
+                quadWriter.stage(i, store, handles[i]);
+            }
         }
+        quadWriter.write(vertices, rangeOffset * Float.BYTES, first, last);                                             // Four vertices per quad, starting at the range allocated to this batch.
     }
 
 
-    /**
-     * Clears this batch of all drawables, resetting it to its default initialized state.
-     */
-    private void clear() {
+    @Override
+    public void flushInto(IndirectCommandBuffer commands) {
 
-        Arrays.fill(vertices, 0);
-        Arrays.fill(drawables, null);
-        numDrawables = 0;
-        textures.clear();
-        hasRoom = true;
+        updateVertexAttributes();
+        commands.add((numDrawables * 6), 1, 0, getBaseVertex(), 0);
+        clear();
     }
 
 
     /**
-     * Initializes this batch.
-     * All necessary data is created on the GPU.
-     * In other words, space is allocated on the GPU.
+     * Points vertex attributes at the shared vertex buffer if it has been recreated since they were last set.
+     * Since every batch using this vertex layout sets identical attributes on the shared vertex array object, this
+     * only does work for the first batch drawn after the shared vertex buffer is recreated.
      */
-    private void init() {
-
-        // Generate and bind a vertex array object.
-        vaoId = glGenVertexArrays();
-        glBindVertexArray(vaoId);
+    private void updateVertexAttributes() {
 
-        // Allocate space for vertices.
-        vboId = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        glBufferData(GL_ARRAY_BUFFER, vertices.length * Float.BYTES, GL_DYNAMIC_DRAW);
-
-        // Create and upload indices buffer.
-        int eboId = glGenBuffers();
-        int[] indices = generateIndices();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
-
-        // Enable buffer attribute pointers.
-        int stride = vertexSize * Float.BYTES;                                                                          // Size of the vertex array in bytes.
-        glVertexAttribPointer(0, positionSize, GL_FLOAT, false, stride, positionOffset);
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(1, colorSize, GL_FLOAT, false, stride, colorOffset);
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(2, textureCoordsSize, GL_FLOAT, false, stride, textureCoordsOffset);
-        glEnableVertexAttribArray(2);
-        glVertexAttribPointer(3, textureIdSize, GL_FLOAT, false, stride, textureIdOffset);
-        glEnableVertexAttribArray(3);
+        if (attributeGeneration != sharedBuffer.getGeneration()) {
+            loadVertexAttributes();
+            attributeGeneration = sharedBuffer.getGeneration();
+        }
     }
 
 
     /**
-     * Generates indices for all quads in this batch.
-     * The number of quads generated is determined by the maximum batch size.
+     * Computes the index of the first vertex of the range allocated to this batch within the shared vertex buffer.
      *
-     * @return indices
+     * @return base vertex
      */
-    private int[] generateIndices() {
-
-        int[] elements = new int[6 * maxBatchSize];                                                                     // 6 indices per quad (3 per triangle).
+    private int getBaseVertex() {
 
-        for (int i = 0; i < maxBatchSize; i++) {
-
-            loadElementIndices(elements, i);
-        }
-        return elements;
+        return (sharedBuffer.getUploadOffset() + rangeOffset) / vertexSize;
     }
 
 
     /**
-     * Loads the indices for a single quad in an array of indices.
-     *
-     * @param elements array of indices that contains the target quad
-     * @param index first index of the target quad in the array of indices (each quad is composed of six sequential
-     *              indices, since each quad is made of two triangles)
+     * Renders all drawables in this batch.
      */
-    private void loadElementIndices(int[] elements, int index) {
+    private void render() {
+
+        // Bind shader program.
+        shader.use();
+
+        // Camera.
+        shader.uploadMat4f("uProjection", gp.getSystemCamera().getProjectionMatrix());
+        shader.uploadMat4f("uView", gp.getSystemCamera().getViewMatrix());
 
-        int offsetArrayIndex = 6 * index;
-        int offset = 4 * index;
+        // Bind array texture.
+        if (textureArray != null) {
+            textureArray.bind(0);
+        }
+        shader.uploadTexture("uTextureArray", 0);
 
-        // Triangle 1.
-        elements[offsetArrayIndex] = offset + 3;
-        elements[offsetArrayIndex + 1] = offset + 2;
-        elements[offsetArrayIndex + 2] = offset + 0;
+        // Point attributes at the shared vertex buffer if it has been recreated since they were last set.
+        updateVertexAttributes();
 
-        // Triangle 2.
-        elements[offsetArrayIndex + 3] = offset + 0;
-        elements[offsetArrayIndex + 4] = offset + 2;
-        elements[offsetArrayIndex + 5] = offset + 1;
+        // Draw, starting from the first vertex of the range allocated to this batch.
+        glDrawElementsBaseVertex(GL_TRIANGLES, (numDrawables * 6), GL_UNSIGNED_INT, 0, getBaseVertex());
     }
 
 
     /**
-     * Loads the vertex properties of the specified drawable.
-     *
-     * @param index index of target drawables in the list of drawables to be rendered with this batch
+     * Clears this batch of all drawables, resetting it to its default initialized state.
+     * Note that vertices are not zeroed, since only vertices written after the next flush are ever drawn.
      */
-    private void loadVertexProperties(int index) {
+    private void clear() {
 
-        Drawable drawable = drawables[index];
+        for (int i = 0; i < numDrawables; i++) {
+            drawables[i] = null;
+        }
+        vertices = null;
+        sharedBuffer = null;
+        numDrawables = 0;
+        store = null;
+        textureArray = null;
+        hasRoom = true;
+    }
 
-        // Find offset within array (4 vertices per drawable).
-        int offset = index * 4 * vertexSize;
 
-        // Color.
-        Vector4f color = drawable.getColor();
+    @Override
+    public void delete() {
 
-        // Texture.
-        Vector2f[] textureCoords = drawable.getTextureCoords();
-        int textureId = 0;
-        if (drawable.getTexture() != null) {
-            for (int i = 0; i < textures.size(); i++) {                                                                 // Find the texture ID; loop through all textures in this batch until we find a match, then assign corresponding ID.
-                if (textures.get(i).equals(drawable.getTexture())) {                                                    // Use `.equals()` because == only compares memory address of two objects, not actual contents.
-                    textureId = i + 1;                                                                                  // Texture slot 0 is reserved for no bound texture to sprite, hence why 1 is added.
-                    break;
-                }
-            }
-        }
+        // Nothing to delete; the vertex buffer and vertex array object are owned by the shared vertex buffer.
+    }
 
-        // Add vertices with appropriate properties.
-        // This assumes positioning everything according to bottom-left corner.
-        // Add clockwise, starting from top-right.
-        // *    *
-        // *    *
-        float xAdd = 1.0f;
-        float yAdd = 1.0f;
-        for (int i = 0; i < 4; i++) {
-            if (i == 1) {
-                yAdd = 0.0f;
-            } else if (i == 2) {
-                xAdd = 0.0f;
-            } else if (i == 3) {
-                yAdd = 1.0f;
-            }
 
-            // Load position.
-            vertices[offset] = drawable.transform.position.x + (xAdd * drawable.transform.scale.x);
-            vertices[offset + 1] = drawable.transform.position.y + (yAdd * drawable.transform.scale.y);
+    /**
+     * Points the attributes of the bound shared vertex array object at the bound shared vertex buffer.
+     * Every batch of this vertex format sets identical attribute pointers, so this only needs to be done again after
+     * the shared vertex buffer is recreated.
+     */
+    private void loadVertexAttributes() {
 
-            // Load color.
-            vertices[offset + 2] = color.x / 255;                                                                       // Red information.
-            vertices[offset + 3] = color.y / 255;                                                                       // Green information.
-            vertices[offset + 4] = color.z / 255;                                                                       // Blue information.
-            vertices[offset + 5] = color.w / 255;                                                                       // Alpha information.
+        int stride = vertexSize * Float.BYTES;                                                                          // Size of the vertex array in bytes.
+        glVertexAttribPointer(0, positionSize, GL_FLOAT, false, stride, positionOffset);
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(1, colorSize, GL_UNSIGNED_BYTE, true, stride, colorOffset);
+        glEnableVertexAttribArray(1);
+        glVertexAttribPointer(2, textureCoordsSize, GL_UNSIGNED_SHORT, true, stride, textureCoordsOffset);
+        glEnableVertexAttribArray(2);
+        glVertexAttribPointer(3, textureLayerSize, GL_UNSIGNED_BYTE, false, stride, textureLayerOffset);
+        glEnableVertexAttribArray(3);
+    }
 
-            // Load texture coordinates.
-            vertices[offset + 6] = textureCoords[i].x;
-            vertices[offset + 7] = textureCoords[i].y;
 
-            // Load texture ID.
-            vertices[offset + 8] = textureId;
+    /**
+     * Stages the properties of the specified drawable to be written.
+     *
+     * @param index index of target drawable in the list of drawables to be rendered with this batch
+     */
+    private void stageDrawable(int index) {
 
-            // Increment.
-            offset += vertexSize;
+        Drawable drawable = drawables[index];
+        int textureLayer = 0;
+        if (drawable.getTexture() != null) {
+            textureLayer = drawable.getTexture().getArrayLayer() + 1;                                                   // Layer 0 is reserved for no texture, hence why 1 is added.
         }
+        quadWriter.stage(index, drawable, PackedVertex.packColor(drawable.getColor()), textureLayer);
     }
 
 
     // GETTERS
+    @Override
     public boolean hasDrawable() {
         return numDrawables > 0;
     }
 
+    @Override
+    public int getNumQuads() {
+        return numDrawables;
+    }
+
+    @Override
+    public int getNumFloats() {
+        return numDrawables * 4 * vertexSize;
+    }
+
+    @Override
+    public int getVertexSize() {
+        return vertexSize;
+    }
+
+    @Override
     public boolean hasRoom() {
         return hasRoom;
     }
 
+    @Override
     public boolean hasTextureRoom() {
-        return textures.size() < 8;
+        return textureArray == null;
     }
 
+    @Override
     public boolean hasTexture(Texture texture) {
-        return textures.contains(texture);
+        return (textureArray != null) && (texture.getTextureArray() == textureArray);
+    }
+
+    @Override
+    public TextureArray getTextureArray() {
+        return textureArray;
     }
 }
@@ -0,0 +1,471 @@
+package rendering.drawable;
+
+import core.GamePanel;
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import rendering.Shader;
+import rendering.Texture;
+import rendering.TextureArray;
+import rendering.buffer.PackedVertex;
+import rendering.buffer.SharedVertexBuffer;
+import utility.AssetPool;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+/**
+ * This class holds a batch of drawables to be sent to the GPU and rendered in a single instanced call.
+ * Unlike a regular drawable batch, only one record is uploaded per drawable.
+ * The four corners of each quad are built from that record in the vertex shader, using the index of each vertex as
+ * the corner.
+ */
+public class DrawableInstancedBatch implements QuadBatch {
+
+    /*
+     * Instance in Instance Array
+     * ==========================
+     * Position         Scale            Color                   Texture coordinates           Texture layer
+     * float, float,    float, float,    ubyte x 4 (packed),     float, float, float, float,   float
+     */
+
+    // FIELDS
+    private final GamePanel gp;
+
+    /**
+     * Defines two position floats in the instance array for each instance.
+     */
+    private final int positionSize = 2;
+
+    /**
+     * Defines two scale floats in the instance array for each instance.
+     */
+    private final int scaleSize = 2;
+
+    /**
+     * Defines four color bytes (normalized when read) in the instance array for each instance.
+     * Together, they occupy the space of a single float.
+     */
+    private final int colorSize = 4;
+
+    /**
+     * Defines four texture coordinate floats in the instance array for each instance.
+     * These are the bottom-left and top-right texture coordinates of the sprite on its parent texture.
+     */
+    private final int textureCoordsSize = 4;
+
+    /**
+     * Defines one texture layer float in the instance array for each instance.
+     * This is the layer of the texture in the bound array texture plus one; zero means no texture.
+     */
+    private final int textureLayerSize = 1;
+
+    /**
+     * Defines the offset (in bytes) of the start of the position floats in the instance array for each instance.
+     * Here, the position starts at the beginning of an instance definition, so it has zero offset.
+     */
+    private final int positionOffset = 0;
+
+    /**
+     * Defines the offset (in bytes) of the start of the scale floats in the instance array for each instance.
+     * Here, the scale starts after the position in an instance definition, so it has an offset determined by the
+     * position.
+     */
+    private final int scaleOffset = positionOffset + positionSize * Float.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the color floats in the instance array for each instance.
+     * Here, the color starts after the scale in an instance definition, so it has an offset determined by the scale.
+     */
+    private final int colorOffset = scaleOffset + scaleSize * Float.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the texture coordinate floats in the instance array for each
+     * instance.
+     * Here, the texture coordinates start after the color in an instance definition, so it has an offset determined by
+     * the color.
+     */
+    private final int textureCoordsOffset = colorOffset + colorSize * Byte.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the texture layer float in the instance array for each instance.
+     * Here, the texture layer starts after the texture coordinates in an instance definition, so it has an offset
+     * determined by the texture coordinates.
+     */
+    private final int textureLayerOffset = textureCoordsOffset + textureCoordsSize * Float.BYTES;
+
+    /**
+     * Maximum number of drawables that can be added to this batch.
+     */
+    private final int maxBatchSize = 1000;
+
+    /**
+     * Actual number of drawables added to this batch (array of drawables) thus far.
+     */
+    private int numDrawables;
+
+    /**
+     * Array to store drawables that will be rendered with this batch.
+     */
+    private final Drawable[] drawables = new Drawable[maxBatchSize];
+
+    /**
+     * Array to store handles of quads added from a drawable store, parallel to the array of drawables.
+     * A handle is only meaningful where the corresponding drawable is null.
+     */
+    private final int[] handles = new int[maxBatchSize];
+
+    /**
+     * Drawable store holding quads added by handle since the last flush.
+     */
+    private DrawableStore store;
+
+    /**
+     * Boolean indicating whether any more drawables can be added to this batch.
+     */
+    private boolean hasRoom = true;
+
+    /**
+     * Total number of floats in each instance of the instance array, counting the packed color as one float.
+     * Remember that an instance represents an entire quad being rendered in this case.
+     */
+    private final int instanceSize = 10;
+
+    /**
+     * Instance array.
+     * This is the memory provided by the shared vertex buffer, which instances are written straight into.
+     * Note that there is one instance per quad, as opposed to the four vertices per quad used by a regular batch.
+     * It is null until this batch is allocated a range after a flush.
+     */
+    private FloatBuffer instances;
+
+    /**
+     * Byte view of the instance array, used to write packed colors.
+     */
+    private ByteBuffer instanceBytes;
+
+    /**
+     * Shared vertex buffer that this batch was last allocated a range of.
+     */
+    private SharedVertexBuffer sharedBuffer;
+
+    /**
+     * Offset (in floats) of the range allocated to this batch within the instance array.
+     */
+    private int rangeOffset;
+
+    /**
+     * Generation of the shared vertex buffer that instance attributes were last enabled for; -1 means never.
+     */
+    private int attributeGeneration = -1;
+
+    /**
+     * Array texture sampled by this batch.
+     * Only drawables whose textures are layers of this array texture (or drawables without a texture) can be added.
+     * This is null until the first drawable with a texture is added after a flush.
+     * As a reminder, a texture is an entire spritesheet, while a sprite is a section of a spritesheet (i.e., texture).
+     */
+    private TextureArray textureArray;
+
+    /**
+     * Shader attached to this batch.
+     */
+    private final Shader shader;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a DrawableInstancedBatch instance.
+     *
+     * @param gp GamePanel instance
+     */
+    public DrawableInstancedBatch(GamePanel gp) {
+        this.gp = gp;
+        this.shader = AssetPool.getShader("/shaders/instanced.glsl");
+    }
+
+
+    // METHODS
+    @Override
+    public void flush() {
+
+        render();
+        clear();
+    }
+
+
+    @Override
+    public void addDrawable(Drawable drawable) {
+
+        // Get index and add render object.
+        int index = numDrawables;
+        drawables[index] = drawable;
+        numDrawables++;
+
+        // Check if drawable has texture; if so, adopt its array texture if none is set yet.
+        if ((drawable.getTexture() != null) && (textureArray == null)) {
+            textureArray = drawable.getTexture().getTextureArray();
+        }
+
+        // Check if batch has run out of room.
+        if (numDrawables >= maxBatchSize) {
+            hasRoom = false;
+        }
+    }
+
+
+    @Override
+    public void addQuad(DrawableStore store, int handle) {
+
+        // Get index and add handle; properties are read straight from the store when vertices are filled.
+        int index = numDrawables;
+        drawables[index] = null;
+        handles[index] = handle;
+        this.store = store;
+        numDrawables++;
+
+        // Check if batch has run out of room.
+        if (numDrawables >= maxBatchSize) {
+            hasRoom = false;
+        }
+    }
+
+
+    @Override
+    public void allocate(SharedVertexBuffer sharedBuffer) {
+
+        this.sharedBuffer = sharedBuffer;
+        instances = sharedBuffer.getVertices();
+        instanceBytes = sharedBuffer.getBytes();
+        rangeOffset = sharedBuffer.allocate(getNumFloats());
+    }
+
+
+    @Override
+    public void fillVertices(int first, int last) {
+
+        for (int i = first; i < last; i++) {
+
+            if (drawables[i] != null) {
+                loadInstanceProperties(i);
+            } else {
+                loadInstanceProperties(i, store, handles[i]);
+            }
+        }
+    }
+
+
+    /**
+     * Renders all drawables in this batch.
+     */
+    private void render() {
+
+        // Bind shader program.
+        shader.use();
+
+        // Camera.
+        shader.uploadMat4f("uProjection", gp.getSystemCamera().getProjectionMatrix());
+        shader.uploadMat4f("uView", gp.getSystemCamera().getViewMatrix());
+
+        // Bind array texture.
+        if (textureArray != null) {
+            textureArray.bind(0);
+        }
+        shader.uploadTexture("uTextureArray", 0);
+
+        // Enable instance attributes if the shared vertex buffer has been recreated since they were last enabled.
+        if (attributeGeneration != sharedBuffer.getGeneration()) {
+            enableInstanceAttributes();
+            attributeGeneration = sharedBuffer.getGeneration();
+        }
+
+        // Point instance attributes at the range allocated to this batch.
+        loadInstanceAttributes((sharedBuffer.getUploadOffset() + rangeOffset) * Float.BYTES);
+
+        // Draw one unit quad per drawable.
+        glDrawElementsInstanced(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0, numDrawables);                                     // Six indices per quad.
+    }
+
+
+    /**
+     * Clears this batch of all drawables, resetting it to its default initialized state.
+     * Note that the instance array does not need to be zeroed, since only added instances are ever drawn.
+     */
+    private void clear() {
+
+        for (int i = 0; i < numDrawables; i++) {
+            drawables[i] = null;
+        }
+        instances = null;
+        instanceBytes = null;
+        sharedBuffer = null;
+        numDrawables = 0;
+        store = null;
+        textureArray = null;
+        hasRoom = true;
+    }
+
+
+    @Override
+    public void delete() {
+
+        // Nothing to delete; the instance buffer and vertex array object are owned by the shared vertex buffer.
+    }
+
+
+    /**
+     * Enables the instance attributes of the bound shared vertex array object.
+     * Each advances once per instance rather than once per vertex.
+     */
+    private void enableInstanceAttributes() {
+
+        for (int i = 1; i <= 5; i++) {
+            glEnableVertexAttribArray(i);
+            glVertexAttribDivisor(i, 1);
+        }
+    }
+
+
+    /**
+     * Points the instance attributes of the bound shared vertex array object at the bound shared vertex buffer.
+     * Base vertices do not apply to instanced attributes, so the pointers themselves must be moved to wherever the
+     * instances were uploaded.
+     *
+     * @param baseOffset offset (in bytes) of the first instance from the start of the shared vertex buffer
+     */
+    private void loadInstanceAttributes(int baseOffset) {
+
+        int stride = instanceSize * Float.BYTES;                                                                        // Size of an instance in bytes.
+        glVertexAttribPointer(1, positionSize, GL_FLOAT, false, stride, baseOffset + positionOffset);
+        glVertexAttribPointer(2, scaleSize, GL_FLOAT, false, stride, baseOffset + scaleOffset);
+        glVertexAttribPointer(3, colorSize, GL_UNSIGNED_BYTE, true, stride, baseOffset + colorOffset);
+        glVertexAttribPointer(4, textureCoordsSize, GL_FLOAT, false, stride, baseOffset + textureCoordsOffset);
+        glVertexAttribPointer(5, textureLayerSize, GL_FLOAT, false, stride, baseOffset + textureLayerOffset);
+    }
+
+
+    /**
+     * Loads the instance properties of the specified drawable.
+     *
+     * @param index index of target drawable in the list of drawables to be rendered with this batch
+     */
+    private void loadInstanceProperties(int index) {
+
+        Drawable drawable = drawables[index];
+
+        // Find offset within array (1 instance per drawable).
+        int offset = rangeOffset + (index * instanceSize);
+
+        // Color.
+        Vector4f color = drawable.getColor();
+
+        // Texture.
+        Vector2f[] textureCoords = drawable.getTextureCoords();
+        int textureLayer = 0;
+        if (drawable.getTexture() != null) {
+            textureLayer = drawable.getTexture().getArrayLayer() + 1;                                                   // Layer 0 is reserved for no texture, hence why 1 is added.
+        }
+
+        // Load position.
+        instances.put(offset, drawable.transform.position.x);
+        instances.put(offset + 1, drawable.transform.position.y);
+
+        // Load scale.
+        instances.put(offset + 2, drawable.transform.scale.x);
+        instances.put(offset + 3, drawable.transform.scale.y);
+
+        // Load color.
+        PackedVertex.putColor(instanceBytes, (offset + 4) * Float.BYTES, PackedVertex.packColor(color));
+
+        // Load texture coordinates (bottom-left corner, then top-right corner).
+        instances.put(offset + 5, textureCoords[2].x);
+        instances.put(offset + 6, textureCoords[2].y);
+        instances.put(offset + 7, textureCoords[0].x);
+        instances.put(offset + 8, textureCoords[0].y);
+
+        // Load texture layer.
+        instances.put(offset + 9, textureLayer);
+    }
+
+
+    /**
+     * Loads the instance properties of a quad held in a drawable store.
+     *
+     * @param index index of target quad in this batch
+     * @param store store holding the quad
+     * @param handle handle of the quad in the store
+     */
+    private void loadInstanceProperties(int index, DrawableStore store, int handle) {
+
+        float[] textureCoords = store.getTextureCoords();
+
+        // Find offset within array (1 instance per quad).
+        int offset = rangeOffset + (index * instanceSize);
+
+        // Load position.
+        instances.put(offset, store.getPositions()[handle * 2]);
+        instances.put(offset + 1, store.getPositions()[handle * 2 + 1]);
+
+        // Load scale.
+        instances.put(offset + 2, store.getScales()[handle * 2]);
+        instances.put(offset + 3, store.getScales()[handle * 2 + 1]);
+
+        // Load color.
+        PackedVertex.putColor(instanceBytes, (offset + 4) * Float.BYTES, store.getColors()[handle]);
+
+        // Load texture coordinates (bottom-left corner, then top-right corner).
+        instances.put(offset + 5, textureCoords[handle * 8 + 4]);
+        instances.put(offset + 6, textureCoords[handle * 8 + 5]);
+        instances.put(offset + 7, textureCoords[handle * 8]);
+        instances.put(offset + 8, textureCoords[handle * 8 + 1]);
+
+        // Load texture layer.
+        instances.put(offset + 9, store.getTextureLayers()[handle]);
+    }
+
+
+    // GETTERS
+    @Override
+    public boolean hasDrawable() {
+        return numDrawables > 0;
+    }
+
+    @Override
+    public int getNumQuads() {
+        return numDrawables;
+    }
+
+    @Override
+    public int getNumFloats() {
+        return numDrawables * instanceSize;
+    }
+
+    @Override
+    public int getVertexSize() {
+        return instanceSize;
+    }
+
+    @Override
+    public boolean hasRoom() {
+        return hasRoom;
+    }
+
+    @Override
+    public boolean hasTextureRoom() {
+        return textureArray == null;
+    }
+
+    @Override
+    public boolean hasTexture(Texture texture) {
+        return (textureArray != null) && (texture.getTextureArray() == textureArray);
+    }
+
+    @Override
+    public TextureArray getTextureArray() {
+        return textureArray;
+    }
+}
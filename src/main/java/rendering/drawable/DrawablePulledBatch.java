@@ -0,0 +1,392 @@
+package rendering.drawable;
+
+import core.GamePanel;
+import org.joml.Vector2f;
+import rendering.Shader;
+import rendering.Texture;
+import rendering.TextureArray;
+import rendering.buffer.PackedVertex;
+import rendering.buffer.SharedVertexBuffer;
+import utility.AssetPool;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * This class holds a batch of drawables to be sent to the GPU and rendered in a single call without any vertex
+ * attributes or index buffer.
+ * One compact record is uploaded per drawable, and the shared vertex buffer holding the records is read by the vertex
+ * shader as a buffer texture.
+ * Each vertex fetches the record of its quad and picks its corner using only its vertex ID, so no vertex attributes
+ * are fetched and no indices are needed.
+ */
+public class DrawablePulledBatch implements QuadBatch {
+
+    /*
+     * Record in Record Array (read as two texels of four unsigned integers)
+     * =====================================================================
+     * Texel 0:    Position         Scale
+     *             float, float,    float, float
+     * Texel 1:    Texture coordinates (bottom-left)    Texture coordinates (top-right)    Color          Texture layer
+     *             0xYYYYXXXX,                          0xYYYYXXXX,                        0xRRGGBBAA,    uint
+     */
+
+    // FIELDS
+    private final GamePanel gp;
+
+    /**
+     * Defines the offset (in bytes) of the start of the position floats in the record array for each record.
+     */
+    private final int positionOffset = 0;
+
+    /**
+     * Defines the offset (in bytes) of the start of the scale floats in the record array for each record.
+     */
+    private final int scaleOffset = positionOffset + 2 * Float.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the texture coordinates in the record array for each record.
+     * These are the bottom-left and top-right texture coordinates of the sprite on its parent texture, each packed as
+     * two normalized unsigned shorts in a single unsigned integer.
+     */
+    private final int textureCoordsOffset = scaleOffset + 2 * Float.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the packed color in the record array for each record.
+     */
+    private final int colorOffset = textureCoordsOffset + 2 * Integer.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the texture layer in the record array for each record.
+     * This is the layer of the texture in the bound array texture plus one; zero means no texture.
+     */
+    private final int textureLayerOffset = colorOffset + Integer.BYTES;
+
+    /**
+     * Maximum number of drawables that can be added to this batch.
+     */
+    private final int maxBatchSize = 1000;
+
+    /**
+     * Actual number of drawables added to this batch (array of drawables) thus far.
+     */
+    private int numDrawables;
+
+    /**
+     * Array to store drawables that will be rendered with this batch.
+     */
+    private final Drawable[] drawables = new Drawable[maxBatchSize];
+
+    /**
+     * Array to store handles of quads added from a drawable store, parallel to the array of drawables.
+     * A handle is only meaningful where the corresponding drawable is null.
+     */
+    private final int[] handles = new int[maxBatchSize];
+
+    /**
+     * Drawable store holding quads added by handle since the last flush.
+     */
+    private DrawableStore store;
+
+    /**
+     * Boolean indicating whether any more drawables can be added to this batch.
+     */
+    private boolean hasRoom = true;
+
+    /**
+     * Total number of 32-bit values in each record of the record array.
+     * This is two texels of four unsigned integers each.
+     */
+    private final int recordSize = 8;
+
+    /**
+     * Record array.
+     * This is a byte view of the memory provided by the shared vertex buffer, which records are written straight into.
+     * It is null until this batch is allocated a range after a flush.
+     */
+    private ByteBuffer records;
+
+    /**
+     * Shared vertex buffer that this batch was last allocated a range of.
+     */
+    private SharedVertexBuffer sharedBuffer;
+
+    /**
+     * Offset (in 32-bit values) of the range allocated to this batch within the record array.
+     */
+    private int rangeOffset;
+
+    /**
+     * Array texture sampled by this batch.
+     * Only drawables whose textures are layers of this array texture (or drawables without a texture) can be added.
+     * This is null until the first drawable with a texture is added after a flush.
+     * As a reminder, a texture is an entire spritesheet, while a sprite is a section of a spritesheet (i.e., texture).
+     */
+    private TextureArray textureArray;
+
+    /**
+     * Shader attached to this batch.
+     */
+    private final Shader shader;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a DrawablePulledBatch instance.
+     *
+     * @param gp GamePanel instance
+     */
+    public DrawablePulledBatch(GamePanel gp) {
+        this.gp = gp;
+        this.shader = AssetPool.getShader("/shaders/pulled.glsl");
+    }
+
+
+    // METHODS
+    @Override
+    public void flush() {
+
+        render();
+        clear();
+    }
+
+
+    @Override
+    public void addDrawable(Drawable drawable) {
+
+        // Get index and add render object.
+        int index = numDrawables;
+        drawables[index] = drawable;
+        numDrawables++;
+
+        // Check if drawable has texture; if so, adopt its array texture if none is set yet.
+        if ((drawable.getTexture() != null) && (textureArray == null)) {
+            textureArray = drawable.getTexture().getTextureArray();
+        }
+
+        // Check if batch has run out of room.
+        if (numDrawables >= maxBatchSize) {
+            hasRoom = false;
+        }
+    }
+
+
+    @Override
+    public void addQuad(DrawableStore store, int handle) {
+
+        // Get index and add handle; properties are read straight from the store when records are filled.
+        int index = numDrawables;
+        drawables[index] = null;
+        handles[index] = handle;
+        this.store = store;
+        numDrawables++;
+
+        // Check if batch has run out of room.
+        if (numDrawables >= maxBatchSize) {
+            hasRoom = false;
+        }
+    }
+
+
+    @Override
+    public void allocate(SharedVertexBuffer sharedBuffer) {
+
+        this.sharedBuffer = sharedBuffer;
+        records = sharedBuffer.getBytes();
+        rangeOffset = sharedBuffer.allocate(getNumFloats());
+    }
+
+
+    @Override
+    public void fillVertices(int first, int last) {
+
+        for (int i = first; i < last; i++) {
+
+            if (drawables[i] != null) {
+                loadRecord(i);
+            } else {
+                loadRecord(i, store, handles[i]);
+            }
+        }
+    }
+
+
+    /**
+     * Renders all drawables in this batch.
+     */
+    private void render() {
+
+        // Bind shader program.
+        shader.use();
+
+        // Camera.
+        shader.uploadMat4f("uProjection", gp.getSystemCamera().getProjectionMatrix());
+        shader.uploadMat4f("uView", gp.getSystemCamera().getViewMatrix());
+
+        // Bind array texture.
+        if (textureArray != null) {
+            textureArray.bind(0);
+        }
+        shader.uploadTexture("uTextureArray", 0);
+
+        // Bind records as a buffer texture.
+        sharedBuffer.bindBufferTexture(1);
+        shader.uploadTexture("uRecords", 1);
+
+        // Draw six vertices per drawable; the vertex ID of the first vertex selects the first record of this batch.
+        int firstRecord = (sharedBuffer.getUploadOffset() + rangeOffset) / recordSize;
+        glDrawArrays(GL_TRIANGLES, firstRecord * 6, numDrawables * 6);
+    }
+
+
+    /**
+     * Clears this batch of all drawables, resetting it to its default initialized state.
+     * Note that the record array does not need to be zeroed, since only added records are ever drawn.
+     */
+    private void clear() {
+
+        for (int i = 0; i < numDrawables; i++) {
+            drawables[i] = null;
+        }
+        records = null;
+        sharedBuffer = null;
+        numDrawables = 0;
+        store = null;
+        textureArray = null;
+        hasRoom = true;
+    }
+
+
+    @Override
+    public void delete() {
+
+        // Nothing to delete; the record buffer and buffer texture are owned by the shared vertex buffer.
+    }
+
+
+    /**
+     * Loads the record of the specified drawable.
+     *
+     * @param index index of target drawable in the list of drawables to be rendered with this batch
+     */
+    private void loadRecord(int index) {
+
+        Drawable drawable = drawables[index];
+
+        // Texture.
+        Vector2f[] textureCoords = drawable.getTextureCoords();
+        int textureLayer = 0;
+        if (drawable.getTexture() != null) {
+            textureLayer = drawable.getTexture().getArrayLayer() + 1;                                                   // Layer 0 is reserved for no texture, hence why 1 is added.
+        }
+
+        putRecord(index,
+                drawable.transform.position.x, drawable.transform.position.y,
+                drawable.transform.scale.x, drawable.transform.scale.y,
+                textureCoords[2].x, textureCoords[2].y, textureCoords[0].x, textureCoords[0].y,
+                PackedVertex.packColor(drawable.getColor()), textureLayer);
+    }
+
+
+    /**
+     * Loads the record of a quad held in a drawable store.
+     *
+     * @param index index of target quad in this batch
+     * @param store store holding the quad
+     * @param handle handle of the quad in the store
+     */
+    private void loadRecord(int index, DrawableStore store, int handle) {
+
+        float[] textureCoords = store.getTextureCoords();
+
+        putRecord(index,
+                store.getPositions()[handle * 2], store.getPositions()[handle * 2 + 1],
+                store.getScales()[handle * 2], store.getScales()[handle * 2 + 1],
+                textureCoords[handle * 8 + 4], textureCoords[handle * 8 + 5],                                           // Bottom-left corner.
+                textureCoords[handle * 8], textureCoords[handle * 8 + 1],                                               // Top-right corner.
+                store.getColors()[handle], store.getTextureLayers()[handle]);
+    }
+
+
+    /**
+     * Writes a single record.
+     *
+     * @param index index of target quad in this batch
+     * @param x x-coordinate (leftmost)
+     * @param y y-coordinate (topmost)
+     * @param width width
+     * @param height height
+     * @param u0 bottom-left texture coordinate (X)
+     * @param v0 bottom-left texture coordinate (Y)
+     * @param u1 top-right texture coordinate (X)
+     * @param v1 top-right texture coordinate (Y)
+     * @param rgba color packed as 0xRRGGBBAA
+     * @param textureLayer texture layer plus one; zero means no texture
+     */
+    private void putRecord(int index, float x, float y, float width, float height, float u0, float v0, float u1,
+                           float v1, int rgba, int textureLayer) {
+
+        // Find offset (in bytes) within array (1 record per quad).
+        int offset = (rangeOffset + (index * recordSize)) * Float.BYTES;
+
+        // Load position and scale.
+        records.putFloat(offset + positionOffset, x);
+        records.putFloat(offset + positionOffset + Float.BYTES, y);
+        records.putFloat(offset + scaleOffset, width);
+        records.putFloat(offset + scaleOffset + Float.BYTES, height);
+
+        // Load texture coordinates; each pair shares a single unsigned integer, with X in the low bits.
+        int bottomLeft = (PackedVertex.unorm16(u0) & 0xFFFF) | (PackedVertex.unorm16(v0) << 16);
+        int topRight = (PackedVertex.unorm16(u1) & 0xFFFF) | (PackedVertex.unorm16(v1) << 16);
+        records.putInt(offset + textureCoordsOffset, bottomLeft);
+        records.putInt(offset + textureCoordsOffset + Integer.BYTES, topRight);
+
+        // Load color and texture layer.
+        // Everything is read back as whole unsigned integers rather than bytes, so native byte order does not matter.
+        records.putInt(offset + colorOffset, rgba);
+        records.putInt(offset + textureLayerOffset, textureLayer);
+    }
+
+
+    // GETTERS
+    @Override
+    public boolean hasDrawable() {
+        return numDrawables > 0;
+    }
+
+    @Override
+    public int getNumQuads() {
+        return numDrawables;
+    }
+
+    @Override
+    public int getNumFloats() {
+        return numDrawables * recordSize;
+    }
+
+    @Override
+    public int getVertexSize() {
+        return recordSize;
+    }
+
+    @Override
+    public boolean hasRoom() {
+        return hasRoom;
+    }
+
+    @Override
+    public boolean hasTextureRoom() {
+        return textureArray == null;
+    }
+
+    @Override
+    public boolean hasTexture(Texture texture) {
+        return (textureArray != null) && (texture.getTextureArray() == textureArray);
+    }
+
+    @Override
+    public TextureArray getTextureArray() {
+        return textureArray;
+    }
+}
@@ -0,0 +1,419 @@
+package rendering.drawable;
+
+import core.Transform;
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import rendering.Sprite;
+import rendering.buffer.PackedVertex;
+
+import java.util.Arrays;
+
+/**
+ * This class stores the render properties of drawables in parallel primitive arrays, addressed by integer handles.
+ * Keeping each property contiguous means vertices can be generated in a single linear sweep over the arrays rather
+ * than by walking the object graph of every drawable.
+ */
+public class DrawableStore {
+
+    /*
+     * Handle Layout
+     * =============
+     * Array             Entries per handle    Contents
+     * positions         2                     x, y (top-left coordinate)
+     * scales            2                     width, height
+     * colors            1                     r, g, b, a (packed as 0xRRGGBBAA)
+     * textureCoords     8                     x, y for each corner, clockwise from top-right
+     * textureLayers     1                     layer in array texture plus one; zero means no texture
+     */
+
+    // FIELDS
+    /**
+     * Maximum number of handles that can be in use at once.
+     */
+    private int capacity;
+
+    /**
+     * Positions of all handles.
+     */
+    private float[] positions;
+
+    /**
+     * Scales of all handles.
+     */
+    private float[] scales;
+
+    /**
+     * Colors of all handles, packed as 0xRRGGBBAA.
+     * Colors are stored packed so that they can be copied straight into packed vertices.
+     */
+    private int[] colors;
+
+    /**
+     * Texture coordinates of all handles.
+     */
+    private float[] textureCoords;
+
+    /**
+     * Texture layers of all handles.
+     */
+    private int[] textureLayers;
+
+    /**
+     * Number of handles that have been created since this store was last emptied.
+     * All handles below this are either in use or waiting to be reused.
+     */
+    private int numHandles;
+
+    /**
+     * Number of handles currently in use.
+     */
+    private int numInUse;
+
+    /**
+     * Stack of released handles below the number of created handles, to be reused before any new handles are created.
+     */
+    private int[] freeHandles;
+
+    /**
+     * Number of released handles in the stack of released handles.
+     */
+    private int numFreeHandles;
+
+    /**
+     * First handle (inclusive) of the range changed since the last call to `clearDirty()`.
+     */
+    private int dirtyStart = Integer.MAX_VALUE;
+
+    /**
+     * Last handle (exclusive) of the range changed since the last call to `clearDirty()`.
+     */
+    private int dirtyEnd = 0;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a DrawableStore instance.
+     *
+     * @param capacity maximum number of handles that can be in use at once
+     */
+    public DrawableStore(int capacity) {
+        this.capacity = capacity;
+        this.positions = new float[capacity * 2];
+        this.scales = new float[capacity * 2];
+        this.colors = new int[capacity];
+        this.textureCoords = new float[capacity * 8];
+        this.textureLayers = new int[capacity];
+        this.freeHandles = new int[capacity];
+    }
+
+
+    // METHODS
+    /**
+     * Creates a new handle.
+     * Released handles are reused first.
+     *
+     * @return handle
+     * @throws IllegalStateException if this store is full
+     */
+    public int create() {
+
+        if (!hasRoom()) {
+
+            throw new IllegalStateException("Drawable store is full (" + capacity + " handles)");
+        }
+        numInUse++;
+
+        if (numFreeHandles > 0) {
+
+            return freeHandles[--numFreeHandles];
+        }
+        return numHandles++;
+    }
+
+
+    /**
+     * Releases a handle so that it can be reused.
+     * The handle is given zero scale and color so that it renders nothing until reused.
+     *
+     * @param handle handle to release
+     */
+    public void release(int handle) {
+
+        numInUse--;
+
+        if (numInUse == 0) {
+
+            numHandles = 0;                                                                                             // Nothing is left in use, so every handle can be reused from the start.
+            numFreeHandles = 0;
+            clearDirty();
+            return;
+        }
+        setScale(handle, 0, 0);
+        setColor(handle, 0);
+        freeHandles[numFreeHandles++] = handle;
+    }
+
+
+    /**
+     * Releases all handles at once.
+     * This is useful for stores holding transient drawables that are rebuilt every frame.
+     */
+    public void clear() {
+
+        numHandles = 0;
+        numInUse = 0;
+        numFreeHandles = 0;
+        clearDirty();
+    }
+
+
+    /**
+     * Grows this store to hold at least the specified number of handles.
+     * Existing handles keep their properties.
+     *
+     * @param minCapacity minimum number of handles that must be able to be in use at once
+     */
+    public void grow(int minCapacity) {
+
+        if (minCapacity <= capacity) {
+
+            return;
+        }
+        capacity = Math.max(minCapacity, capacity * 2);
+        positions = Arrays.copyOf(positions, capacity * 2);
+        scales = Arrays.copyOf(scales, capacity * 2);
+        colors = Arrays.copyOf(colors, capacity);
+        textureCoords = Arrays.copyOf(textureCoords, capacity * 8);
+        textureLayers = Arrays.copyOf(textureLayers, capacity);
+        freeHandles = Arrays.copyOf(freeHandles, capacity);
+    }
+
+
+    /**
+     * Writes all properties of a drawable to a handle.
+     *
+     * @param handle target handle
+     * @param drawable Drawable instance to copy properties from
+     */
+    public void set(int handle, Drawable drawable) {
+
+        syncTransform(handle, drawable.transform);
+        setColor(handle, drawable.getColor());
+        setSprite(handle, drawable.getSprite());
+        markDirty(handle);
+    }
+
+
+    /**
+     * Writes a transform to a handle if it differs from what is already stored.
+     *
+     * @param handle target handle
+     * @param transform transform to copy position and scale from
+     * @return whether the stored transform changed (true) or not (false)
+     */
+    public boolean syncTransform(int handle, Transform transform) {
+
+        int i = handle * 2;
+
+        if ((positions[i] != transform.position.x) || (positions[i + 1] != transform.position.y)
+                || (scales[i] != transform.scale.x) || (scales[i + 1] != transform.scale.y)) {
+
+            positions[i] = transform.position.x;
+            positions[i + 1] = transform.position.y;
+            scales[i] = transform.scale.x;
+            scales[i + 1] = transform.scale.y;
+            markDirty(handle);
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Writes a position to a handle.
+     *
+     * @param handle target handle
+     * @param x x-coordinate (leftmost)
+     * @param y y-coordinate (topmost)
+     */
+    public void setPosition(int handle, float x, float y) {
+
+        positions[handle * 2] = x;
+        positions[handle * 2 + 1] = y;
+        markDirty(handle);
+    }
+
+
+    /**
+     * Writes a scale to a handle.
+     *
+     * @param handle target handle
+     * @param width width
+     * @param height height
+     */
+    public void setScale(int handle, float width, float height) {
+
+        scales[handle * 2] = width;
+        scales[handle * 2 + 1] = height;
+        markDirty(handle);
+    }
+
+
+    /**
+     * Writes a color to a handle.
+     *
+     * @param handle target handle
+     * @param color color (r, g, b, a), from 0 to 255
+     */
+    public void setColor(int handle, Vector4f color) {
+
+        setColor(handle, PackedVertex.packColor(color));
+    }
+
+
+    /**
+     * Writes a color to a handle.
+     *
+     * @param handle target handle
+     * @param rgba color packed as 0xRRGGBBAA
+     */
+    public void setColor(int handle, int rgba) {
+
+        colors[handle] = rgba;
+        markDirty(handle);
+    }
+
+
+    /**
+     * Writes a color to a handle.
+     *
+     * @param handle target handle
+     * @param r red (normalized from zero to one)
+     * @param g green (normalized from zero to one)
+     * @param b blue (normalized from zero to one)
+     * @param a alpha (normalized from zero to one)
+     */
+    public void setColor(int handle, float r, float g, float b, float a) {
+
+        setColor(handle, PackedVertex.packColor(r, g, b, a));
+    }
+
+
+    /**
+     * Writes the texture coordinates and texture layer of a sprite to a handle.
+     *
+     * @param handle target handle
+     * @param sprite sprite to copy texture information from
+     */
+    public void setSprite(int handle, Sprite sprite) {
+
+        Vector2f[] coords = sprite.getTextureCoords();
+        int i = handle * 8;
+
+        for (int corner = 0; corner < 4; corner++) {
+
+            textureCoords[i + corner * 2] = coords[corner].x;
+            textureCoords[i + corner * 2 + 1] = coords[corner].y;
+        }
+
+        if (sprite.getTexture() != null) {
+            textureLayers[handle] = sprite.getTexture().getArrayLayer() + 1;                                            // Layer 0 is reserved for no texture, hence why 1 is added.
+        } else {
+            textureLayers[handle] = 0;
+        }
+        markDirty(handle);
+    }
+
+
+    /**
+     * Writes texture coordinates spanning the entire quad and no texture layer to a handle.
+     *
+     * @param handle target handle
+     */
+    public void setUntextured(int handle) {
+
+        int i = handle * 8;
+        textureCoords[i] = 1;                                                                                           // Top-right.
+        textureCoords[i + 1] = 1;
+        textureCoords[i + 2] = 1;                                                                                       // Bottom-right.
+        textureCoords[i + 3] = 0;
+        textureCoords[i + 4] = 0;                                                                                       // Bottom-left.
+        textureCoords[i + 5] = 0;
+        textureCoords[i + 6] = 0;                                                                                       // Top-left.
+        textureCoords[i + 7] = 1;
+        textureLayers[handle] = 0;
+        markDirty(handle);
+    }
+
+
+    /**
+     * Resets the range of handles changed to be empty.
+     */
+    public void clearDirty() {
+
+        dirtyStart = Integer.MAX_VALUE;
+        dirtyEnd = 0;
+    }
+
+
+    /**
+     * Extends the range of handles changed to include the specified handle.
+     *
+     * @param handle changed handle
+     */
+    private void markDirty(int handle) {
+
+        dirtyStart = Math.min(dirtyStart, handle);
+        dirtyEnd = Math.max(dirtyEnd, handle + 1);
+    }
+
+
+    // GETTERS
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getNumHandles() {
+        return numHandles;
+    }
+
+    public int getNumInUse() {
+        return numInUse;
+    }
+
+    public boolean hasRoom() {
+        return numInUse < capacity;
+    }
+
+    public boolean isDirty() {
+        return dirtyStart < dirtyEnd;
+    }
+
+    public int getDirtyStart() {
+        return dirtyStart;
+    }
+
+    public int getDirtyEnd() {
+        return dirtyEnd;
+    }
+
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public float[] getScales() {
+        return scales;
+    }
+
+    public int[] getColors() {
+        return colors;
+    }
+
+    public float[] getTextureCoords() {
+        return textureCoords;
+    }
+
+    public int[] getTextureLayers() {
+        return textureLayers;
+    }
+}
@@ -0,0 +1,20 @@
+package rendering.drawable;
+
+import rendering.buffer.IndirectCommandBuffer;
+
+/**
+ * This interface defines a batch of drawables (quads) that can also be drawn with indexed indirect draws, so that
+ * consecutive batches can be drawn together with a single call.
+ */
+public interface IndirectQuadBatch extends QuadBatch {
+
+    /**
+     * Records the draw of this batch into an indirect command buffer rather than drawing it, then clears this batch of
+     * all drawables.
+     * The recorded command is only valid until the shared vertex buffer this batch was allocated from begins another
+     * frame, so the command buffer must be drawn before then with the same shader and array texture bound.
+     *
+     * @param commands indirect command buffer to record into
+     */
+    void flushInto(IndirectCommandBuffer commands);
+}
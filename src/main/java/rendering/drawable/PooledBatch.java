@@ -0,0 +1,13 @@
+package rendering.drawable;
+
+/**
+ * This interface defines a batch whose GPU objects can be released when it is no longer needed.
+ */
+public interface PooledBatch {
+
+    /**
+     * Deletes all GPU objects held by this batch.
+     * This batch must not be used afterward.
+     */
+    void delete();
+}
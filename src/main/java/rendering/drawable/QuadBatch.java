@@ -0,0 +1,126 @@
+package rendering.drawable;
+
+import rendering.Texture;
+import rendering.TextureArray;
+import rendering.buffer.SharedVertexBuffer;
+
+/**
+ * This interface defines a batch of drawables (quads) to be sent to the GPU and rendered in a single call.
+ */
+public interface QuadBatch extends PooledBatch {
+
+    /**
+     * Renders this batch then clears it of all drawables.
+     * Vertices of all drawables in this batch must have been filled and uploaded beforehand, and the shared vertex
+     * array object of the shared vertex buffer this batch was allocated from must be bound.
+     */
+    void flush();
+
+
+    /**
+     * Allocates the range of a shared vertex buffer that this batch writes its vertices into this frame.
+     * This must be called after the shared vertex buffer has begun a frame and before vertices are filled.
+     *
+     * @param sharedBuffer shared vertex buffer to allocate from
+     */
+    void allocate(SharedVertexBuffer sharedBuffer);
+
+
+    /**
+     * Adds a drawable to this batch.
+     * Its vertices are not written until filled.
+     *
+     * @param drawable Drawable instance to add
+     */
+    void addDrawable(Drawable drawable);
+
+
+    /**
+     * Adds a quad held in a drawable store to this batch.
+     * Its properties are copied straight from the arrays of the store, so no Drawable instance is needed.
+     * Since a store does not know which array texture a texture layer belongs to, the quad must either be untextured
+     * or sample the array texture already sampled by this batch.
+     *
+     * @param store store holding the quad
+     * @param handle handle of the quad in the store
+     */
+    void addQuad(DrawableStore store, int handle);
+
+
+    /**
+     * Writes the vertices of a range of quads added to this batch.
+     * Each quad writes to its own section of memory, so disjoint ranges may be filled concurrently from multiple
+     * threads.
+     * No OpenGL calls are made.
+     *
+     * @param first index of first quad to fill (inclusive)
+     * @param last index of last quad to fill (exclusive)
+     */
+    void fillVertices(int first, int last);
+
+
+    /**
+     * Checks whether any drawables have been added to this batch since the last flush.
+     *
+     * @return whether drawables have been added (true) or not (false)
+     */
+    boolean hasDrawable();
+
+
+    /**
+     * Retrieves the number of quads added to this batch since the last flush.
+     *
+     * @return number of quads
+     */
+    int getNumQuads();
+
+
+    /**
+     * Retrieves the number of floats needed to hold the vertices of all quads added to this batch since the last
+     * flush.
+     *
+     * @return number of floats
+     */
+    int getNumFloats();
+
+
+    /**
+     * Retrieves the number of floats in each vertex written by this batch.
+     *
+     * @return vertex size
+     */
+    int getVertexSize();
+
+
+    /**
+     * Checks whether any more drawables can be added to this batch.
+     *
+     * @return whether more drawables can be added (true) or not (false)
+     */
+    boolean hasRoom();
+
+
+    /**
+     * Checks whether this batch has not yet been assigned any texture.
+     *
+     * @return whether this batch has room for a texture (true) or not (false)
+     */
+    boolean hasTextureRoom();
+
+
+    /**
+     * Checks whether this batch can already sample the specified texture.
+     *
+     * @param texture target texture
+     * @return whether the texture can be sampled (true) or not (false)
+     */
+    boolean hasTexture(Texture texture);
+
+
+    /**
+     * Retrieves the array texture sampled by this batch.
+     *
+     * @return array texture, or null if no drawable with a texture has been added since the last flush
+     */
+    TextureArray getTextureArray();
+}
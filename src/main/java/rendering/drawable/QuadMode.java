@@ -0,0 +1,65 @@
+package rendering.drawable;
+
+import core.GamePanel;
+
+/**
+ * This enum defines the ways batches of drawables can send quads to the GPU.
+ * Which is fastest depends on the number of quads and on the driver, so one is selected at startup.
+ */
+public enum QuadMode {
+
+    /**
+     * Four complete vertices uploaded per quad and drawn through the shared quad index buffer.
+     */
+    VERTEX,
+
+    /**
+     * One record uploaded per quad as per-instance vertex attributes; corners are built in the vertex shader.
+     */
+    INSTANCED,
+
+    /**
+     * One compact record uploaded per quad and fetched from a buffer texture in the vertex shader.
+     * Corners are expanded from the vertex ID alone, so neither vertex attributes nor an index buffer are used.
+     * This suits very large numbers of quads, where vertex fetch and upload size dominate.
+     */
+    PULLED;
+
+
+    // METHODS
+    /**
+     * Creates a batch of drawables using this mode.
+     *
+     * @param gp GamePanel instance
+     * @return batch
+     */
+    public QuadBatch create(GamePanel gp) {
+
+        switch (this) {
+            case INSTANCED:
+                return new DrawableInstancedBatch(gp);
+            case PULLED:
+                return new DrawablePulledBatch(gp);
+            default:
+                return new DrawableBatch(gp);
+        }
+    }
+
+
+    /**
+     * Retrieves the file path of the shader used by batches of drawables using this mode.
+     *
+     * @return shader file path
+     */
+    public String getShaderPath() {
+
+        switch (this) {
+            case INSTANCED:
+                return "/shaders/instanced.glsl";
+            case PULLED:
+                return "/shaders/pulled.glsl";
+            default:
+                return "/shaders/default.glsl";
+        }
+    }
+}
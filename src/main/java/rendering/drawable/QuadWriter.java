@@ -0,0 +1,167 @@
+package rendering.drawable;
+
+import org.joml.Vector2f;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class writes the packed vertices of batches of quads from parallel primitive arrays.
+ * Each property is stored in its own array so that the same property of consecutive quads is contiguous.
+ * Properties of each quad are first staged into the arrays (from a drawable or a drawable store), then all staged
+ * quads in a range are written in a single pass, which lets subclasses process many quads per iteration.
+ * Each batch owns its own writer, and quads are staged and written at their index in the batch, so disjoint ranges may
+ * be staged and written concurrently from multiple threads.
+ */
+public abstract class QuadWriter {
+
+    /*
+     * Vertex in Vertex Array (written by every writer)
+     * ================================================
+     * Position         Color                   Texture coordinates     Texture layer
+     * float, float,    ubyte x 4 (packed),     ushort, ushort,         ubyte (followed by three bytes of padding)
+     *
+     * Four vertices are written per quad, clockwise from the top-right corner.
+     */
+
+    // FIELDS
+    /**
+     * Total number of bytes in each vertex.
+     */
+    protected static final int vertexBytes = 20;
+
+    /**
+     * Total number of bytes in the four vertices of each quad.
+     */
+    protected static final int quadBytes = 4 * vertexBytes;
+
+    /**
+     * Maximum number of quads that can be staged.
+     */
+    protected final int capacity;
+
+    /**
+     * X-coordinates (leftmost) of all staged quads.
+     */
+    protected final float[] xs;
+
+    /**
+     * Y-coordinates (topmost) of all staged quads.
+     */
+    protected final float[] ys;
+
+    /**
+     * Widths of all staged quads.
+     */
+    protected final float[] widths;
+
+    /**
+     * Heights of all staged quads.
+     */
+    protected final float[] heights;
+
+    /**
+     * Colors of all staged quads, packed as 0xRRGGBBAA.
+     */
+    protected final int[] colors;
+
+    /**
+     * Texture coordinates (X) of all staged quads.
+     * There is one section per corner (clockwise from top-right), each holding one entry per quad, so that the same
+     * corner of consecutive quads is contiguous.
+     */
+    protected final float[] us;
+
+    /**
+     * Texture coordinates (Y) of all staged quads, laid out the same as texture coordinates (X).
+     */
+    protected final float[] vs;
+
+    /**
+     * Texture layers of all staged quads; zero means no texture.
+     */
+    protected final int[] textureLayers;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a QuadWriter instance.
+     *
+     * @param capacity maximum number of quads that can be staged
+     */
+    public QuadWriter(int capacity) {
+        this.capacity = capacity;
+        this.xs = new float[capacity];
+        this.ys = new float[capacity];
+        this.widths = new float[capacity];
+        this.heights = new float[capacity];
+        this.colors = new int[capacity];
+        this.us = new float[capacity * 4];
+        this.vs = new float[capacity * 4];
+        this.textureLayers = new int[capacity];
+    }
+
+
+    // METHODS
+    /**
+     * Writes the vertices of a range of staged quads.
+     * All quads in the range must have been staged beforehand.
+     *
+     * @param vertices memory to write into, in native byte order
+     * @param offset offset (in bytes) of the first vertex of quad 0 within the memory
+     * @param first index of first quad to write (inclusive)
+     * @param last index of last quad to write (exclusive)
+     */
+    public abstract void write(ByteBuffer vertices, int offset, int first, int last);
+
+
+    /**
+     * Stages a quad from a drawable.
+     *
+     * @param index index of target quad in the batch
+     * @param drawable Drawable instance to stage
+     * @param rgba color packed as 0xRRGGBBAA
+     * @param textureLayer texture layer plus one; zero means no texture
+     */
+    public void stage(int index, Drawable drawable, int rgba, int textureLayer) {
+
+        xs[index] = drawable.transform.position.x;
+        ys[index] = drawable.transform.position.y;
+        widths[index] = drawable.transform.scale.x;
+        heights[index] = drawable.transform.scale.y;
+        colors[index] = rgba;
+        textureLayers[index] = textureLayer;
+
+        Vector2f[] corners = drawable.getTextureCoords();
+        for (int i = 0; i < 4; i++) {
+            us[i * capacity + index] = corners[i].x;
+            vs[i * capacity + index] = corners[i].y;
+        }
+    }
+
+
+    /**
+     * Stages a quad held in a drawable store.
+     *
+     * @param index index of target quad in the batch
+     * @param store store holding the quad
+     * @param handle handle of the quad in the store
+     */
+    public void stage(int index, DrawableStore store, int handle) {
+
+        float[] positions = store.getPositions();
+        float[] scales = store.getScales();
+        float[] textureCoords = store.getTextureCoords();
+
+        xs[index] = positions[handle * 2];
+        ys[index] = positions[handle * 2 + 1];
+        widths[index] = scales[handle * 2];
+        heights[index] = scales[handle * 2 + 1];
+        colors[index] = store.getColors()[handle];
+        textureLayers[index] = store.getTextureLayers()[handle];
+
+        for (int i = 0; i < 4; i++) {
+            us[i * capacity + index] = textureCoords[handle * 8 + i * 2];
+            vs[i * capacity + index] = textureCoords[handle * 8 + i * 2 + 1];
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package rendering.drawable;
+
+import core.GamePanel;
+import rendering.GLState;
+import rendering.Shader;
+import rendering.Texture;
+import rendering.TextureArray;
+import rendering.buffer.QuadIndexBuffer;
+import rendering.buffer.SubDataUpload;
+import rendering.buffer.VertexUpload;
+import utility.AssetPool;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+
+/**
+ * This class holds a batch of drawables that are retained on the GPU between frames and rendered in a single call.
+ * Each drawable occupies a fixed slot in the vertex buffer, addressed by its handle in a drawable store, for as long as
+ * it is registered.
+ * The vertices of a drawable are only rewritten and uploaded when it changes, so drawables that do not change cost
+ * almost nothing to render each frame.
+ */
+public class RetainedBatch {
+
+    /*
+     * Vertex in Vertex Array
+     * ======================
+     * Position         Color                   Texture coordinates     Texture layer
+     * float, float,    ubyte x 4 (packed),     ushort, ushort,         ubyte (followed by three bytes of padding)
+     */
+
+    // FIELDS
+    private final GamePanel gp;
+
+    /**
+     * Defines two position floats in the vertex array for each vertex.
+     */
+    private final int positionSize = 2;
+
+    /**
+     * Defines four color bytes (normalized when read) in the vertex array for each vertex.
+     */
+    private final int colorSize = 4;
+
+    /**
+     * Defines two texture coordinate shorts (normalized when read) in the vertex array for each vertex.
+     */
+    private final int textureCoordsSize = 2;
+
+    /**
+     * Defines one texture layer byte in the vertex array for each vertex.
+     * This is the layer of the texture in the bound array texture plus one; zero means no texture.
+     */
+    private final int textureLayerSize = 1;
+
+    /**
+     * Defines the offset (in bytes) of the start of the position floats in the vertex array for each vertex.
+     */
+    private final int positionOffset = 0;
+
+    /**
+     * Defines the offset (in bytes) of the start of the color bytes in the vertex array for each vertex.
+     */
+    private final int colorOffset = positionOffset + positionSize * Float.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the texture coordinate shorts in the vertex array for each vertex.
+     */
+    private final int textureCoordsOffset = colorOffset + colorSize * Byte.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the texture layer byte in the vertex array for each vertex.
+     */
+    private final int textureLayerOffset = textureCoordsOffset + textureCoordsSize * Short.BYTES;
+
+    /**
+     * Maximum number of drawables that can be registered with this batch.
+     */
+    private final int maxBatchSize = 1000;
+
+    /**
+     * Store holding the render properties of registered drawables.
+     * The handle of each drawable in the store is also its slot in the vertex buffer.
+     */
+    private final DrawableStore store = new DrawableStore(maxBatchSize);
+
+    /**
+     * Array to store registered drawables, indexed by handle.
+     * Handles of removed drawables are null until reused.
+     */
+    private final Drawable[] drawables = new Drawable[maxBatchSize];
+
+    /**
+     * List to store drawables removed because their sprite changed to one this batch cannot sample.
+     */
+    private final ArrayList<Drawable> pendingEvictions = new ArrayList<>();
+
+    /**
+     * Total number of floats in each vertex of the vertex array.
+     * Packed attributes are counted by the number of floats they occupy, so a vertex is 20 bytes.
+     */
+    private final int vertexSize = 5;
+
+    /**
+     * Total number of floats in the vertex array.
+     */
+    private final int vertexArraySize = maxBatchSize * 4 * vertexSize;
+
+    /**
+     * Vertex array.
+     * This is a byte view of staging memory that is retained between frames, so only changed slots are ever rewritten.
+     */
+    private ByteBuffer vertices;
+
+    /**
+     * Vertex array object ID.
+     */
+    private int vaoId;
+
+    /**
+     * Writer that the properties of changed handles are staged into and that writes their vertices.
+     */
+    private final QuadWriter quadWriter;
+
+    /**
+     * Vertex upload that vertices are uploaded through.
+     * Uploads always copy with `glBufferSubData`, since it is the only strategy that retains buffer contents between
+     * frames.
+     */
+    private VertexUpload vertexUpload;
+
+    /**
+     * Array texture sampled by this batch.
+     * This is null until the first drawable with a texture is registered after this batch was last emptied.
+     */
+    private TextureArray textureArray;
+
+    /**
+     * Shader attached to this batch.
+     */
+    private final Shader shader;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a RetainedBatch instance.
+     *
+     * @param gp GamePanel instance
+     */
+    public RetainedBatch(GamePanel gp) {
+        this.gp = gp;
+        this.shader = AssetPool.getShader("/shaders/default.glsl");
+        this.quadWriter = gp.getVertexFillMode().create(maxBatchSize);
+        init();
+    }
+
+
+    // METHODS
+    /**
+     * Registers a drawable with this batch, assigning it a handle and copying its properties into the store.
+     *
+     * @param drawable Drawable instance to register
+     */
+    public void add(Drawable drawable) {
+
+        int handle = store.create();
+        drawables[handle] = drawable;
+        drawable.setRetainedBatch(this);
+        drawable.setRetainedSlot(handle);
+
+        if ((drawable.getTexture() != null) && (textureArray == null)) {
+            textureArray = drawable.getTexture().getTextureArray();
+        }
+        store.set(handle, drawable);
+    }
+
+
+    /**
+     * Removes a drawable from this batch, releasing its handle.
+     *
+     * @param drawable Drawable instance to remove
+     */
+    public void remove(Drawable drawable) {
+
+        int handle = drawable.getRetainedSlot();
+        drawables[handle] = null;
+        drawable.setRetainedBatch(null);
+        drawable.setRetainedSlot(-1);
+        store.release(handle);
+
+        if (store.getNumInUse() == 0) {
+            textureArray = null;
+        }
+    }
+
+
+    /**
+     * Writes the sprite of a registered drawable through to the store.
+     * If this batch cannot sample the texture of the new sprite, the drawable is removed instead and must be
+     * registered elsewhere.
+     *
+     * @param drawable registered Drawable instance whose sprite changed
+     */
+    public void updateSprite(Drawable drawable) {
+
+        if (!canSample(drawable.getTexture())) {
+
+            remove(drawable);
+            pendingEvictions.add(drawable);
+            return;
+        }
+
+        if ((drawable.getTexture() != null) && (textureArray == null)) {
+            textureArray = drawable.getTexture().getTextureArray();
+        }
+        store.setSprite(drawable.getRetainedSlot(), drawable.getSprite());
+    }
+
+
+    /**
+     * Moves all drawables removed from this batch since the last call (because this batch could not sample their new
+     * sprite) into a list, so that they can be registered elsewhere.
+     * This must be done before batches are updated, so that evicted drawables are written and uploaded in the same
+     * frame they are registered again.
+     *
+     * @param evicted list to add evicted drawables to
+     */
+    public void takeEvictions(ArrayList<Drawable> evicted) {
+
+        evicted.addAll(pendingEvictions);
+        pendingEvictions.clear();
+    }
+
+
+    /**
+     * Copies changed transforms into the store, then rewrites the vertices of all changed handles in a single sweep.
+     * Since transforms are modified directly, they are the only property that must be checked for changes; color and
+     * sprite changes are written through to the store as they happen.
+     * Transforms give no notice when modified, so checking them costs one comparison per registered drawable each
+     * frame; only drawables that actually changed are rewritten and uploaded.
+     */
+    public void update() {
+
+        for (int handle = 0; handle < store.getNumHandles(); handle++) {
+
+            Drawable drawable = drawables[handle];
+
+            if (drawable != null) {
+
+                store.syncTransform(handle, drawable.transform);
+            }
+        }
+
+        if (store.isDirty()) {
+
+            loadVertexProperties(store.getDirtyStart(), store.getDirtyEnd());
+            store.clearDirty();
+        }
+    }
+
+
+    /**
+     * Renders all drawables registered with this batch.
+     */
+    public void render() {
+
+        if (store.getNumInUse() == 0) {
+            return;
+        }
+
+        // Upload any changed vertices.
+        vertexUpload.end();
+
+        // Bind shader program.
+        shader.use();
+
+        // Camera.
+        shader.uploadMat4f("uProjection", gp.getSystemCamera().getProjectionMatrix());
+        shader.uploadMat4f("uView", gp.getSystemCamera().getViewMatrix());
+
+        // Bind array texture.
+        if (textureArray != null) {
+            textureArray.bind(0);
+        }
+        shader.uploadTexture("uTextureArray", 0);
+
+        // Bind VAO being used.
+        GLState.bindVertexArray(vaoId);
+
+        // Draw.
+        glDrawElements(GL_TRIANGLES, (store.getNumHandles() * 6), GL_UNSIGNED_INT, 0);
+    }
+
+
+    /**
+     * Checks whether this batch can sample the specified texture.
+     *
+     * @param texture target texture
+     * @return whether the texture can be sampled (true) or not (false)
+     */
+    public boolean canSample(Texture texture) {
+
+        return (texture == null) || (textureArray == null) || (texture.getTextureArray() == textureArray);
+    }
+
+
+    /**
+     * Deletes all GPU objects held by this batch.
+     * This batch must not be used afterward.
+     */
+    public void delete() {
+
+        vertexUpload.delete();
+        GLState.deleteVertexArray(vaoId);
+    }
+
+
+    /**
+     * Initializes this batch.
+     * All necessary data is created on the GPU.
+     */
+    private void init() {
+
+        // Generate and bind a vertex array object.
+        vaoId = glGenVertexArrays();
+        GLState.bindVertexArray(vaoId);
+
+        // Allocate space for vertices.
+        vertexUpload = new SubDataUpload(vertexArraySize, vertexSize);
+        vertices = vertexUpload.asBytes(vertexUpload.begin());
+
+        // Bind shared quad indices buffer.
+        QuadIndexBuffer.bind(maxBatchSize);
+
+        // Enable buffer attribute pointers.
+        int stride = vertexSize * Float.BYTES;                                                                          // Size of the vertex array in bytes.
+        glVertexAttribPointer(0, positionSize, GL_FLOAT, false, stride, positionOffset);
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(1, colorSize, GL_UNSIGNED_BYTE, true, stride, colorOffset);
+        glEnableVertexAttribArray(1);
+        glVertexAttribPointer(2, textureCoordsSize, GL_UNSIGNED_SHORT, true, stride, textureCoordsOffset);
+        glEnableVertexAttribArray(2);
+        glVertexAttribPointer(3, textureLayerSize, GL_UNSIGNED_BYTE, false, stride, textureLayerOffset);
+        glEnableVertexAttribArray(3);
+    }
+
+
+    /**
+     * Loads the vertex properties of a range of handles from the store.
+     * Each handle is staged into the quad writer at its own slot, then all are written in a single pass.
+     *
+     * @param first first handle (inclusive)
+     * @param last last handle (exclusive)
+     */
+    private void loadVertexProperties(int first, int last) {
+
+        vertexUpload.markDirty(first * 4 * vertexSize, (last - first) * 4 * vertexSize);                                // Four vertices per drawable.
+
+        for (int handle = first; handle < last; handle++) {
+            quadWriter.stage(handle, store, handle);
+        }
+        quadWriter.write(vertices, 0, first, last);
+    }
+
+
+    // GETTERS
+    public boolean hasDrawable() {
+        return store.getNumInUse() > 0;
+    }
+
+    public boolean hasRoom() {
+        return store.hasRoom();
+    }
+
+    public DrawableStore getStore() {
+        return store;
+    }
+}
@@ -0,0 +1,310 @@
+package rendering.drawable;
+
+import core.GamePanel;
+import rendering.GLState;
+import rendering.Shader;
+import rendering.buffer.QuadIndexBuffer;
+import rendering.buffer.VertexUpload;
+import utility.AssetPool;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
+
+/**
+ * This class holds a batch of rectangles with rounded corners to be sent to the GPU and rendered in a single call.
+ * The size and corner radius of each rectangle are passed as vertex attributes, and corners are cut by a signed
+ * distance function in the fragment shader, so rectangles of any size and radius can share a batch.
+ */
+public class RoundedBatch implements PooledBatch {
+
+    /*
+     * Vertex in Vertex Array
+     * ======================
+     * Position         Color                          Local position     Half size        Radius
+     * float, float,    float, float, float, float,    float, float,      float, float,    float
+     */
+
+    // FIELDS
+    private final GamePanel gp;
+
+    /**
+     * Defines two position floats in the vertex array for each vertex.
+     */
+    private final int positionSize = 2;
+
+    /**
+     * Defines four color floats in the vertex array for each vertex.
+     */
+    private final int colorSize = 4;
+
+    /**
+     * Defines two local position floats in the vertex array for each vertex.
+     * This is the position of the vertex relative to the center of its rectangle.
+     */
+    private final int localPositionSize = 2;
+
+    /**
+     * Defines two half size floats in the vertex array for each vertex.
+     * This is half the width and height of the rectangle that the vertex belongs to.
+     */
+    private final int halfSizeSize = 2;
+
+    /**
+     * Defines one radius float in the vertex array for each vertex.
+     * This is the radius of the corners of the rectangle that the vertex belongs to.
+     */
+    private final int radiusSize = 1;
+
+    /**
+     * Defines the offset (in bytes) of the start of the position floats in the vertex array for each vertex.
+     */
+    private final int positionOffset = 0;
+
+    /**
+     * Defines the offset (in bytes) of the start of the color floats in the vertex array for each vertex.
+     */
+    private final int colorOffset = positionOffset + positionSize * Float.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the local position floats in the vertex array for each vertex.
+     */
+    private final int localPositionOffset = colorOffset + colorSize * Float.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the half size floats in the vertex array for each vertex.
+     */
+    private final int halfSizeOffset = localPositionOffset + localPositionSize * Float.BYTES;
+
+    /**
+     * Defines the offset (in bytes) of the start of the radius float in the vertex array for each vertex.
+     */
+    private final int radiusOffset = halfSizeOffset + halfSizeSize * Float.BYTES;
+
+    /**
+     * Maximum number of rectangles that can be added to this batch.
+     */
+    private final int maxBatchSize = 1000;
+
+    /**
+     * Actual number of rectangles added to this batch thus far.
+     */
+    private int numRectangles;
+
+    /**
+     * Total number of floats in each vertex of the vertex array.
+     */
+    private final int vertexSize = 11;
+
+    /**
+     * Total number of floats in the vertex array.
+     * Note that there are four vertices per rectangle, hence the multiplication by four.
+     */
+    private final int vertexArraySize = maxBatchSize * 4 * vertexSize;
+
+    /**
+     * Vertex array.
+     * This is the memory provided by the vertex upload, which vertices are written straight into.
+     * It is null until the first rectangle is added after a flush.
+     */
+    private FloatBuffer vertices;
+
+    /**
+     * Vertex array object ID.
+     */
+    private int vaoId;
+
+    /**
+     * Vertex upload that vertices are uploaded through.
+     */
+    private VertexUpload vertexUpload;
+
+    /**
+     * Shader attached to this batch.
+     */
+    private final Shader shader;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a RoundedBatch instance.
+     *
+     * @param gp GamePanel instance
+     */
+    public RoundedBatch(GamePanel gp) {
+        this.gp = gp;
+        this.shader = AssetPool.getShader("/shaders/rounded.glsl");
+        init();
+    }
+
+
+    // METHODS
+    /**
+     * Renders this batch then clears it of all rectangles.
+     */
+    public void flush() {
+
+        render();
+        clear();
+    }
+
+
+    /**
+     * Adds a rectangle with rounded corners to this batch.
+     *
+     * @param x x-coordinate (leftmost)
+     * @param y y-coordinate (topmost)
+     * @param width width
+     * @param height height
+     * @param radius arc radius at four corners of rectangle
+     * @param rgba color packed as 0xRRGGBBAA
+     */
+    public void addRectangle(float x, float y, float width, float height, float radius, int rgba) {
+
+        // Retrieve memory to write vertices into if this is the first rectangle since the last flush.
+        if (vertices == null) {
+            vertices = vertexUpload.begin();
+        }
+
+        // Find offset within array (4 vertices per rectangle).
+        int offset = numRectangles * 4 * vertexSize;
+        vertexUpload.markDirty(offset, 4 * vertexSize);
+        numRectangles++;
+
+        // Color.
+        float r = ((rgba >>> 24) & 0xFF) / 255f;
+        float g = ((rgba >>> 16) & 0xFF) / 255f;
+        float b = ((rgba >>> 8) & 0xFF) / 255f;
+        float a = (rgba & 0xFF) / 255f;
+
+        // Size.
+        float halfWidth = width / 2;
+        float halfHeight = height / 2;
+        radius = Math.min(radius, Math.min(halfWidth, halfHeight));                                                     // Corners cannot be larger than the rectangle itself.
+
+        // Add vertices clockwise, starting from top-right.
+        float xAdd = 1.0f;
+        float yAdd = 1.0f;
+        for (int i = 0; i < 4; i++) {
+            if (i == 1) {
+                yAdd = 0.0f;
+            } else if (i == 2) {
+                xAdd = 0.0f;
+            } else if (i == 3) {
+                yAdd = 1.0f;
+            }
+
+            // Load position.
+            vertices.put(offset, x + (xAdd * width));
+            vertices.put(offset + 1, y + (yAdd * height));
+
+            // Load color.
+            vertices.put(offset + 2, r);                                                                                // Red information.
+            vertices.put(offset + 3, g);                                                                                // Green information.
+            vertices.put(offset + 4, b);                                                                                // Blue information.
+            vertices.put(offset + 5, a);                                                                                // Alpha information.
+
+            // Load local position.
+            vertices.put(offset + 6, (xAdd * width) - halfWidth);
+            vertices.put(offset + 7, (yAdd * height) - halfHeight);
+
+            // Load half size.
+            vertices.put(offset + 8, halfWidth);
+            vertices.put(offset + 9, halfHeight);
+
+            // Load radius.
+            vertices.put(offset + 10, radius);
+
+            // Increment.
+            offset += vertexSize;
+        }
+    }
+
+
+    /**
+     * Renders all rectangles in this batch.
+     */
+    private void render() {
+
+        // Make written vertices available to the GPU.
+        int uploadOffset = vertexUpload.end();
+
+        // Bind shader program.
+        shader.use();
+
+        // Camera.
+        shader.uploadMat4f("uProjection", gp.getSystemCamera().getProjectionMatrix());
+        shader.uploadMat4f("uView", gp.getSystemCamera().getViewMatrix());
+
+        // Bind VAO being used.
+        GLState.bindVertexArray(vaoId);
+
+        // Draw, starting from the first vertex just uploaded.
+        glDrawElementsBaseVertex(GL_TRIANGLES, (numRectangles * 6), GL_UNSIGNED_INT, 0, uploadOffset / vertexSize);
+        vertexUpload.fence();                                                                                           // Written memory must not be reused until the GPU has finished drawing it.
+    }
+
+
+    /**
+     * Clears this batch of all rectangles, resetting it to its default initialized state.
+     * Note that vertices are not zeroed, since only vertices written after the next flush are ever drawn.
+     */
+    private void clear() {
+
+        vertices = null;
+        numRectangles = 0;
+    }
+
+
+    @Override
+    public void delete() {
+
+        vertexUpload.delete();
+        GLState.deleteVertexArray(vaoId);
+    }
+
+
+    /**
+     * Initializes this batch.
+     * All necessary data is created on the GPU.
+     * In other words, space is allocated on the GPU.
+     */
+    private void init() {
+
+        // Generate and bind a vertex array object.
+        vaoId = glGenVertexArrays();
+        GLState.bindVertexArray(vaoId);
+
+        // Allocate space for vertices.
+        vertexUpload = gp.getUploadMode().create(vertexArraySize, vertexSize);
+
+        // Bind shared quad indices buffer.
+        QuadIndexBuffer.bind(maxBatchSize);
+
+        // Enable buffer attribute pointers.
+        int stride = vertexSize * Float.BYTES;                                                                          // Size of the vertex array in bytes.
+        glVertexAttribPointer(0, positionSize, GL_FLOAT, false, stride, positionOffset);
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(1, colorSize, GL_FLOAT, false, stride, colorOffset);
+        glEnableVertexAttribArray(1);
+        glVertexAttribPointer(2, localPositionSize, GL_FLOAT, false, stride, localPositionOffset);
+        glEnableVertexAttribArray(2);
+        glVertexAttribPointer(3, halfSizeSize, GL_FLOAT, false, stride, halfSizeOffset);
+        glEnableVertexAttribArray(3);
+        glVertexAttribPointer(4, radiusSize, GL_FLOAT, false, stride, radiusOffset);
+        glEnableVertexAttribArray(4);
+    }
+
+
+    // GETTERS
+    public boolean hasRectangle() {
+        return numRectangles > 0;
+    }
+
+    public boolean hasRoom() {
+        return numRectangles < maxBatchSize;
+    }
+}
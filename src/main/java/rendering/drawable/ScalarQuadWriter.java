@@ -0,0 +1,85 @@
+package rendering.drawable;
+
+import rendering.buffer.PackedVertex;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class writes the packed vertices of staged quads one quad at a time.
+ * The four corners of each quad are unrolled, so no branches are taken per vertex.
+ * This works on every platform and is the fallback whenever vectorized writing is unavailable.
+ */
+public class ScalarQuadWriter extends QuadWriter {
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a ScalarQuadWriter instance.
+     *
+     * @param capacity maximum number of quads that can be staged
+     */
+    public ScalarQuadWriter(int capacity) {
+        super(capacity);
+    }
+
+
+    // METHODS
+    @Override
+    public void write(ByteBuffer vertices, int offset, int first, int last) {
+
+        for (int i = first; i < last; i++) {
+
+            writeQuad(vertices, offset + (i * quadBytes), i);
+        }
+    }
+
+
+    /**
+     * Writes the four vertices of a single staged quad.
+     *
+     * @param vertices memory to write into, in native byte order
+     * @param offset offset (in bytes) of the first vertex of the quad within the memory
+     * @param index index of the quad
+     */
+    protected void writeQuad(ByteBuffer vertices, int offset, int index) {
+
+        float x0 = xs[index];
+        float y0 = ys[index];
+        float x1 = x0 + widths[index];
+        float y1 = y0 + heights[index];
+        int rgba = colors[index];
+        byte textureLayer = (byte)textureLayers[index];
+
+        // Add vertices clockwise, starting from top-right.
+        putVertex(vertices, offset, x1, y1, rgba, us[index], vs[index], textureLayer);
+        putVertex(vertices, offset + vertexBytes, x1, y0, rgba,
+                us[capacity + index], vs[capacity + index], textureLayer);
+        putVertex(vertices, offset + 2 * vertexBytes, x0, y0, rgba,
+                us[2 * capacity + index], vs[2 * capacity + index], textureLayer);
+        putVertex(vertices, offset + 3 * vertexBytes, x0, y1, rgba,
+                us[3 * capacity + index], vs[3 * capacity + index], textureLayer);
+    }
+
+
+    /**
+     * Writes a single packed vertex.
+     *
+     * @param vertices memory to write into, in native byte order
+     * @param offset offset (in bytes) of the vertex within the memory
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param rgba color packed as 0xRRGGBBAA
+     * @param u texture coordinate (X)
+     * @param v texture coordinate (Y)
+     * @param textureLayer texture layer plus one; zero means no texture
+     */
+    private void putVertex(ByteBuffer vertices, int offset, float x, float y, int rgba, float u, float v,
+                           byte textureLayer) {
+
+        vertices.putFloat(offset, x);
+        vertices.putFloat(offset + Float.BYTES, y);
+        PackedVertex.putColor(vertices, offset + 8, rgba);
+        vertices.putShort(offset + 12, PackedVertex.unorm16(u));
+        vertices.putShort(offset + 14, PackedVertex.unorm16(v));
+        vertices.put(offset + 16, textureLayer);
+    }
+}
@@ -0,0 +1,60 @@
+package rendering.drawable;
+
+import java.nio.ByteOrder;
+
+/**
+ * This enum defines the ways batches of drawables can write the vertices of their quads.
+ * Which are available depends on the JVM and CPU, so one is selected at startup.
+ */
+public enum VertexFillMode {
+
+    /**
+     * One quad written at a time.
+     */
+    SCALAR,
+
+    /**
+     * Many quads written per iteration with SIMD instructions (JDK Vector API).
+     * The JVM must be started with `--add-modules jdk.incubator.vector`, and native byte order must be little-endian.
+     * Falls back to scalar writing if either is not the case.
+     */
+    VECTOR;
+
+
+    // METHODS
+    /**
+     * Creates a quad writer using this mode.
+     *
+     * @param capacity maximum number of quads that can be staged
+     * @return quad writer
+     */
+    public QuadWriter create(int capacity) {
+
+        if ((this == VECTOR) && isVectorSupported()) {
+
+            try {
+
+                return (QuadWriter)Class.forName("rendering.drawable.VectorQuadWriter")                                 // Compiled separately (see pom.xml) and only loaded here, so the Vector API is never touched if it is unavailable.
+                        .getConstructor(int.class)
+                        .newInstance(capacity);
+
+            } catch (ReflectiveOperationException e) {
+
+                System.out.println("Vectorized vertex writer is unavailable; using " + SCALAR + ".");
+            }
+        }
+        return new ScalarQuadWriter(capacity);
+    }
+
+
+    /**
+     * Checks whether vectorized writing is supported by the running JVM.
+     *
+     * @return whether vectorized writing is supported (true) or not (false)
+     */
+    public static boolean isVectorSupported() {
+
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                && (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,107 @@
+package rendering.drawable;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class fills the vertices of batches of drawables in parallel on a fork/join pool.
+ * Work is split by batch first, then each batch is split into ranges of quads until ranges are small enough to fill
+ * directly.
+ * Since each quad writes to its own section of memory, no synchronization is needed beyond waiting for the task to
+ * complete.
+ */
+public class VertexFillTask extends RecursiveAction {
+
+    // FIELDS
+    /**
+     * Serialization version, required since RecursiveAction is serializable (tasks are never actually serialized).
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of quads at or below which a range is filled directly rather than split further.
+     */
+    private static final int grainSize = 256;
+
+    /**
+     * Batches to fill.
+     */
+    private final List<? extends QuadBatch> batches;
+
+    /**
+     * Index of first batch to fill (inclusive).
+     */
+    private final int firstBatch;
+
+    /**
+     * Index of last batch to fill (exclusive).
+     */
+    private final int lastBatch;
+
+    /**
+     * Index of first quad to fill (inclusive); only used if this task fills a single batch.
+     */
+    private final int firstQuad;
+
+    /**
+     * Index of last quad to fill (exclusive); only used if this task fills a single batch.
+     */
+    private final int lastQuad;
+
+
+    // CONSTRUCTORS
+    /**
+     * Constructs a VertexFillTask instance to fill all quads in a range of batches.
+     *
+     * @param batches batches to fill
+     * @param firstBatch index of first batch to fill (inclusive)
+     * @param lastBatch index of last batch to fill (exclusive)
+     */
+    public VertexFillTask(List<? extends QuadBatch> batches, int firstBatch, int lastBatch) {
+        this(batches, firstBatch, lastBatch, 0, -1);
+    }
+
+
+    /**
+     * Constructs a VertexFillTask instance.
+     *
+     * @param batches batches to fill
+     * @param firstBatch index of first batch to fill (inclusive)
+     * @param lastBatch index of last batch to fill (exclusive)
+     * @param firstQuad index of first quad to fill (inclusive)
+     * @param lastQuad index of last quad to fill (exclusive); -1 fills all quads
+     */
+    private VertexFillTask(List<? extends QuadBatch> batches, int firstBatch, int lastBatch, int firstQuad,
+                           int lastQuad) {
+        this.batches = batches;
+        this.firstBatch = firstBatch;
+        this.lastBatch = lastBatch;
+        this.firstQuad = firstQuad;
+        this.lastQuad = lastQuad;
+    }
+
+
+    // METHODS
+    @Override
+    protected void compute() {
+
+        if (lastBatch - firstBatch > 1) {                                                                               // Split by batch.
+
+            int middle = (firstBatch + lastBatch) >>> 1;
+            invokeAll(new VertexFillTask(batches, firstBatch, middle),
+                    new VertexFillTask(batches, middle, lastBatch));
+            return;
+        }
+        QuadBatch batch = batches.get(firstBatch);
+        int last = (lastQuad < 0) ? batch.getNumQuads() : lastQuad;
+
+        if (last - firstQuad > grainSize) {                                                                             // Split by range of quads.
+
+            int middle = (firstQuad + last) >>> 1;
+            invokeAll(new VertexFillTask(batches, firstBatch, lastBatch, firstQuad, middle),
+                    new VertexFillTask(batches, firstBatch, lastBatch, middle, last));
+            return;
+        }
+        batch.fillVertices(firstQuad, last);
+    }
+}
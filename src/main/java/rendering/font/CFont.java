@@ -1,20 +1,39 @@
 package rendering.font;
 
 import org.lwjgl.BufferUtils;
+import org.lwjgl.stb.STBTTFontinfo;
+import rendering.GLState;
+import utility.UtilityTool;
 
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.GL_R8;
+import static org.lwjgl.stb.STBTruetype.*;
 
 /**
  * This class represents a loaded font.
+ * Fonts are parsed and rasterized with stb_truetype, straight from the font file, so no AWT classes are loaded.
+ * Glyphs are rasterized on demand the first time they are retrieved and packed into fixed-size atlas pages, which are
+ * uploaded incrementally; only printable ASCII characters are rasterized upon construction.
+ * A new page is added whenever the current one is full, so texture coordinates of glyphs already packed never change.
  */
 public class CFont {
 
+    /*
+     * Cached Atlas
+     * ============
+     * Magic    Pages    Packing cursor      Characters
+     * int      int      int page, x, y      int count, then count records
+     *
+     * Character record: codepoint, source x, source y, width, height, descent, page (all int)
+     * Followed by the texels of every page in order (one byte each, row by row) through the end of the file.
+     */
+
     // FIELDS
     /**
      * Font file path.
@@ -26,20 +45,49 @@ public class CFont {
      */
     private final int fontSize;
 
+    /**
+     * Way glyphs are stored in the atlas texture of this font.
+     */
+    private final FontAtlasMode atlasMode;
+
+    /**
+     * Cache that the atlas of this font is read from and written to, or null if the atlas is never cached.
+     */
+    private final FontAtlasCache cache;
+
+    /**
+     * Key that the atlas of this font is cached under, or null if the atlas is never cached.
+     */
+    private String cacheKey;
+
     /**
      * Font name.
      */
     private String name;
 
     /**
-     * Map to store information on all characters contained in this font.
+     * Map to store information on all characters retrieved from this font thus far.
+     * Characters that this font cannot display are mapped to the missing character.
      */
     private final HashMap<Integer, CharInfo> charMap = new HashMap<>();
 
     /**
-     * Texture ID of rendered parent texture containing this font.
+     * Empty character returned for characters not contained in this font.
+     */
+    private final CharInfo missingCharacter = new CharInfo(0, 0, 0, 0, 0);
+
+    /**
+     * Texture IDs of the atlas pages of this font, indexed by page.
      */
-    private int textureId;
+    private final ArrayList<Integer> pageTextureIds = new ArrayList<>();
+
+    /**
+     * Texels of atlas pages that have not been uploaded yet, indexed by page.
+     * This is only non-null while construction-time glyphs are being rasterized, so that every page is uploaded (and
+     * cached) in one piece; glyphs rasterized afterward are uploaded individually into pages that already exist.
+     * Pages are held in direct memory so that they can be uploaded without being copied.
+     */
+    private ArrayList<ByteBuffer> pendingPages;
 
     /**
      * Height adjustment for all loaded characters.
@@ -55,161 +103,569 @@ public class CFont {
      */
     private final int spacingAdjustment = 10;
 
+    /**
+     * Distance (in pixels at native font size) from the outline of each glyph at which signed distances saturate.
+     * Glyphs are spaced at least twice this far apart so that their distance fields do not overlap.
+     */
+    private final int sdfSpread = 16;
+
+    /**
+     * Number of pixels at native font size along each side of a single texel of a signed distance field atlas.
+     * The atlas has this many times fewer texels along each side than a bitmap atlas of the same font.
+     */
+    private final int sdfDownsample = 4;
+
+    /**
+     * Width and height (in pixels at native font size) of each atlas page.
+     */
+    private final int pageSize = 2048;
+
+    /**
+     * First character rasterized upon construction (space).
+     */
+    private final int firstInitialCharacter = 32;
+
+    /**
+     * Last character rasterized upon construction (tilde).
+     */
+    private final int lastInitialCharacter = 126;
+
+    /**
+     * Value identifying the start of a cached atlas ("CFNT").
+     */
+    private final int cacheMagic = 0x43464E54;
+
+    /**
+     * Contents of the font file.
+     * This must be retained for as long as the font is used, since the font information refers to it directly.
+     */
+    private ByteBuffer fontData;
+
+    /**
+     * Font information that glyphs are measured and rasterized from.
+     */
+    private final STBTTFontinfo fontInfo = STBTTFontinfo.create();
+
+    /**
+     * Factor converting font units into pixels at native font size.
+     */
+    private float scale;
+
+    /**
+     * Distance (in pixels at native font size) that characters extend above the baseline.
+     */
+    private int ascent;
+
+    /**
+     * Distance (in pixels at native font size) that characters extend below the baseline.
+     */
+    private int descent;
+
+    /**
+     * Distance (in pixels at native font size) between the baselines of consecutive lines.
+     */
+    private int lineHeight;
+
+    /**
+     * Kerning (in pixels at native font size) between every pair of characters rasterized upon construction, indexed
+     * by first character, then second character.
+     * Text is mostly made of these characters, so looking kerning up in the font is rarely needed.
+     */
+    private float[] initialKerning;
+
+    /**
+     * Scratch space that individual glyphs are rasterized into before being copied into their cells.
+     */
+    private ByteBuffer glyphBitmap = BufferUtils.createByteBuffer(0);
+
+    /**
+     * Scratch space that the texels of individual cells are copied into to be uploaded.
+     */
+    private ByteBuffer cellUpload = BufferUtils.createByteBuffer(0);
+
+    /**
+     * Converter used to generate the signed distance field of each glyph, if this font uses a signed distance field
+     * atlas.
+     */
+    private SignedDistanceField field;
+
+    /**
+     * Height (in pixels at native font size) of the cell that each glyph is packed into.
+     */
+    private int cellHeight;
+
+    /**
+     * Page that the next glyph will be packed into, or -1 if there are no pages yet.
+     */
+    private int cursorPage = -1;
+
+    /**
+     * Position (in pixels at native font size) on the current page that the next glyph will be packed at.
+     * Glyphs are packed left to right in rows of cells.
+     */
+    private int cursorX, cursorY;
+
 
     // CONSTRUCTOR
     /**
      * Constructs a CFont instance.
-     * The font provided at the provided file path is loaded upon construction.
+     * The font provided at the provided file path is loaded upon construction, and its glyphs are stored as a bitmap.
      *
      * @param filePath file path of font from resources directory
      * @param fontSize font scale (controls font resolution)
      */
     public CFont(String filePath, int fontSize) {
+        this(filePath, fontSize, FontAtlasMode.BITMAP);
+    }
+
+
+    /**
+     * Constructs a CFont instance.
+     * The font provided at the provided file path is loaded upon construction.
+     *
+     * @param filePath file path of font from resources directory
+     * @param fontSize font scale (controls font resolution)
+     * @param atlasMode way glyphs are stored in the atlas texture of this font
+     */
+    public CFont(String filePath, int fontSize, FontAtlasMode atlasMode) {
+        this(filePath, fontSize, atlasMode, null);
+    }
+
+
+    /**
+     * Constructs a CFont instance.
+     * The font provided at the provided file path is loaded upon construction.
+     * If an atlas generated from the same font file with the same parameters is cached, it is uploaded directly upon
+     * construction, skipping rasterization entirely.
+     * Otherwise, the generated atlas is cached for later launches.
+     *
+     * @param filePath file path of font from resources directory
+     * @param fontSize font scale (controls font resolution)
+     * @param atlasMode way glyphs are stored in the atlas texture of this font
+     * @param cache cache to read the atlas from and write it to, or null to never cache it
+     */
+    public CFont(String filePath, int fontSize, FontAtlasMode atlasMode, FontAtlasCache cache) {
         this.filePath = filePath;
         this.fontSize = fontSize;
-        generateBitmap();
+        this.atlasMode = atlasMode;
+        this.cache = cache;
+        loadFont();
+
+        if (cache != null) {
+
+            cacheKey = cache.key(fontData, fontSize, atlasMode.ordinal(), heightAdjustment, spacingAdjustment,
+                    sdfSpread, sdfDownsample, pageSize, firstInitialCharacter, lastInitialCharacter);
+        }
+
+        if ((cacheKey == null) || !loadCachedAtlas(cache.read(cacheKey))) {
+
+            generateBitmap();
+        }
     }
 
 
     // METHODS
     /**
-     * Generates a bitmap for this font and uploads the result to the GPU.
-     */
-    public void generateBitmap() {
-
-        // Create new font from loaded file.
-        Font font = registerFont();
-        font = new Font(font.getName(), Font.PLAIN, fontSize);
-        name = font.getName();
-
-        // Create fake image to get font information.
-        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
-        g2d.setFont(font);
-        FontMetrics fontMetrics = g2d.getFontMetrics();
-
-        // Initialize fake image dimensions.
-        int estimatedWidth = (int)Math.sqrt(font.getNumGlyphs()) * font.getSize()
-                + ((int)Math.sqrt(font.getNumGlyphs()) * spacingAdjustment);
-        int width = 0;                                                                                                  // Width of rendered image containing all characters.
-        int height = fontMetrics.getHeight();                                                                           // Height of rendered image containing all characters.
-        int x = 0;
-        int y = fontMetrics.getHeight();
-
-        // Loop through all glyphs and calculate what actual image dimensions must be.
-        for (int i = 0; i < font.getNumGlyphs(); i++) {
-            if (font.canDisplay(i)) {
-                CharInfo charInfo = new CharInfo(x, y,
-                        fontMetrics.charWidth(i), fontMetrics.getHeight() - heightAdjustment, fontMetrics.getDescent());
-                charMap.put(i, charInfo);
-                width = Math.max(x + fontMetrics.charWidth(i), width);                                                  // Take whichever width is bigger.
-                x += charInfo.getWidth() + spacingAdjustment;
-                if (x > estimatedWidth) {
-                    x = 0;
-                    y += fontMetrics.getHeight();
-                    height += fontMetrics.getHeight();
+     * Rasterizes all characters needed upon construction (printable ASCII) and uploads the resulting atlas pages to
+     * the GPU.
+     * If this font uses a signed distance field atlas, each glyph is converted to a distance field as it is packed.
+     * If this font has a cache, the uploaded pages are also written to it.
+     */
+    private void generateBitmap() {
+
+        pendingPages = new ArrayList<>();
+
+        for (int codepoint = firstInitialCharacter; codepoint <= lastInitialCharacter; codepoint++) {
+
+            addGlyph(codepoint);
+        }
+
+        for (ByteBuffer texels : pendingPages) {
+
+            pageTextureIds.add(uploadPage(texels));
+        }
+
+        // Cache finished atlas for later launches.
+        if (cacheKey != null) {
+            cache.write(cacheKey, serializeAtlas());
+        }
+        pendingPages = null;
+    }
+
+
+    /**
+     * Retrieves a character from this font.
+     * If the character has not been retrieved before, its glyph is rasterized and packed into the atlas first.
+     *
+     * @param codepoint character to retrieve (!, A, B, C, etc.)
+     * @return character
+     */
+    public CharInfo getCharacter(int codepoint) {
+
+        CharInfo charInfo = charMap.get(codepoint);
+        return (charInfo != null) ? charInfo : addGlyph(codepoint);
+    }
+
+
+    /**
+     * Retrieves the kerning between two consecutive characters of this font.
+     * This is the amount to add to the width of the first character before placing the second.
+     *
+     * @param first first character
+     * @param second second character
+     * @return kerning (in pixels at native font size)
+     */
+    public float getKerning(int first, int second) {
+
+        int numInitial = lastInitialCharacter - firstInitialCharacter + 1;
+        int firstIndex = first - firstInitialCharacter;
+        int secondIndex = second - firstInitialCharacter;
+
+        if ((firstIndex >= 0) && (firstIndex < numInitial) && (secondIndex >= 0) && (secondIndex < numInitial)) {
+
+            return initialKerning[firstIndex * numInitial + secondIndex];
+        }
+        return stbtt_GetCodepointKernAdvance(fontInfo, first, second) * scale;
+    }
+
+
+    /**
+     * Rasterizes the glyph of a character, packs it into the next free cell of the atlas, and uploads it.
+     *
+     * @param codepoint character to rasterize
+     * @return character, or the missing character if this font cannot display it
+     */
+    private CharInfo addGlyph(int codepoint) {
+
+        int glyph = stbtt_FindGlyphIndex(fontInfo, codepoint);                                                          // Zero if this font cannot display the character.
+        int[] advance = new int[1];
+        int[] bearing = new int[1];
+        stbtt_GetGlyphHMetrics(fontInfo, glyph, advance, bearing);
+        int margin = (atlasMode == FontAtlasMode.SDF) ? sdfSpread : 0;                                                  // Distance fields extend past the outline of each glyph.
+        int charWidth = Math.round(advance[0] * scale);
+        int cellWidth = alignToTexels(charWidth + spacingAdjustment + 2 * margin);
+
+        if ((glyph == 0) || (cellWidth > pageSize)) {
+
+            charMap.put(codepoint, missingCharacter);                                                                   // Remember so that the glyph is never attempted again.
+            return missingCharacter;
+        }
+
+        // Find free cell, starting a new row or page if needed.
+        if (cursorX + cellWidth > pageSize) {
+            cursorX = 0;
+            cursorY += cellHeight;
+        }
+        if ((cursorPage < 0) || (cursorY + cellHeight > pageSize)) {
+            addPage();
+            cursorPage++;
+            cursorX = 0;
+            cursorY = 0;
+        }
+
+        // Rasterize glyph, then copy its coverage into its cell, clipping anything that extends past the cell.
+        int baseline = margin + ascent;
+        byte[] texels = new byte[cellWidth * cellHeight];
+        int[] x0 = new int[1];
+        int[] y0 = new int[1];
+        int[] x1 = new int[1];
+        int[] y1 = new int[1];
+        stbtt_GetGlyphBitmapBox(fontInfo, glyph, scale, scale, x0, y0, x1, y1);                                         // Relative to the origin of the glyph on the baseline.
+        int glyphWidth = x1[0] - x0[0];
+        int glyphHeight = y1[0] - y0[0];
+
+        if ((glyphWidth > 0) && (glyphHeight > 0)) {                                                                    // Some glyphs (ex. space) have no outline.
+
+            if (glyphBitmap.capacity() < glyphWidth * glyphHeight) {
+                glyphBitmap = BufferUtils.createByteBuffer(glyphWidth * glyphHeight);
+            }
+            stbtt_MakeGlyphBitmap(fontInfo, glyphBitmap, glyphWidth, glyphHeight, glyphWidth, scale, scale, glyph);
+
+            for (int row = 0; row < glyphHeight; row++) {
+
+                int cellY = baseline + y0[0] + row;
+                if ((cellY < 0) || (cellY >= cellHeight)) {
+                    continue;
+                }
+                for (int column = 0; column < glyphWidth; column++) {
+                    int cellX = margin + x0[0] + column;
+                    if ((cellX >= 0) && (cellX < cellWidth)) {
+                        texels[cellY * cellWidth + cellX] = glyphBitmap.get(row * glyphWidth + column);
+                    }
                 }
             }
         }
-        height += fontMetrics.getHeight();
 
-        // Dispose of graphics context of fake image since no longer needed.
-        g2d.dispose();
+        // Convert coverage into a distance field if needed.
+        if (atlasMode == FontAtlasMode.SDF) {
+            byte[] coverage = texels;
+            texels = new byte[(cellWidth / sdfDownsample) * (cellHeight / sdfDownsample)];
+            field.convert(coverage, cellWidth, cellHeight, 0, 0, cellWidth, cellHeight,
+                    texels, cellWidth / sdfDownsample);
+        }
+        int downsample = getDownsample();
+        writeCell(cursorX / downsample, cursorY / downsample, cellWidth / downsample, cellHeight / downsample, texels);
+
+        // Record character.
+        CharInfo charInfo = new CharInfo(cursorX + margin, cursorY + baseline, charWidth,
+                lineHeight - heightAdjustment, descent, cursorPage);
+        charInfo.calculateTextureCoordinates(pageSize, pageSize);
+        charMap.put(codepoint, charInfo);
+        cursorX += cellWidth;
+        return charInfo;
+    }
+
 
-        // Create real image.
-        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        g2d = image.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setFont(font);
-        g2d.setColor(Color.WHITE);
+    /**
+     * Writes the texels of a single cell into the current page of the atlas.
+     * While construction-time glyphs are being rasterized, the cell is written into the pending page; otherwise, it is
+     * uploaded straight into the page on the GPU.
+     *
+     * @param x x-coordinate (in texels) of the cell on the page (leftmost)
+     * @param y y-coordinate (in texels) of the cell on the page (topmost)
+     * @param width width of the cell (in texels)
+     * @param height height of the cell (in texels)
+     * @param texels texels of the cell (0-255), row by row
+     */
+    private void writeCell(int x, int y, int width, int height, byte[] texels) {
 
-        // Draw glyphs onto real image.
-        for (int i = 0; i < font.getNumGlyphs(); i++) {
-            if (font.canDisplay(i)) {
-                CharInfo info = charMap.get(i);
-                charMap.get(i).calculateTextureCoordinates(width, height);
-                g2d.drawString("" + (char)i, info.getSourceX(), info.getSourceY());
+        if (pendingPages != null) {
+
+            ByteBuffer page = pendingPages.get(cursorPage);
+            int pageTexels = pageSize / getDownsample();
+            for (int row = 0; row < height; row++) {
+                page.put((y + row) * pageTexels + x, texels, row * width, width);                                       // Bulk copy one row at a time.
+            }
+        } else {
+
+            if (cellUpload.capacity() < texels.length) {
+                cellUpload = BufferUtils.createByteBuffer(texels.length);
             }
+            cellUpload.clear();
+            cellUpload.put(texels).flip();                                                                              // Bulk copy.
+            GLState.bindTexture(GL_TEXTURE_2D, pageTextureIds.get(cursorPage));
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);                                                                      // Rows of single-channel cells are not necessarily four-byte aligned.
+            glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, width, height, GL_RED, GL_UNSIGNED_BYTE, cellUpload);
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 4);                                                                      // Restore default.
         }
+    }
 
-        // Dispose of graphics context of real image (buffered image still contains all data).
-        g2d.dispose();
 
-        // Create texture from real image.
-        uploadTexture(image);
+    /**
+     * Adds an empty page to the atlas.
+     */
+    private void addPage() {
+
+        int pageTexels = pageSize / getDownsample();
+
+        if (pendingPages != null) {
+
+            pendingPages.add(BufferUtils.createByteBuffer(pageTexels * pageTexels));                                    // Zeroed upon allocation.
+        } else {
+
+            pageTextureIds.add(uploadPage(BufferUtils.createByteBuffer(pageTexels * pageTexels)));
+        }
     }
 
 
     /**
-     * Uploads the passed image to the GPU as a texture.
+     * Loads and parses the font file of this font, and measures the metrics shared by all of its characters.
+     * Parsing is cheap compared to rasterizing, so this is done even if the atlas of this font is cached.
      *
-     * @param image target image
-     */
-    private void uploadTexture(BufferedImage image) {
-
-        // Place all pixels from image into an array.
-        int[] pixels = new int[image.getHeight() * image.getWidth()];
-        image.getRGB(0, 0, image.getWidth(), image.getHeight(), pixels, 0, image.getWidth());
-
-        // Create ByteBuffer.
-        ByteBuffer buffer = BufferUtils.createByteBuffer(image.getWidth() * image.getHeight() * 4);                     // Multiply by four since four bytes (rgba) are in one integer.
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                int pixel = pixels[y * image.getWidth() + x];
-                byte alphaComponent = (byte)((pixel >> 24) & 0xFF);
-                buffer.put(alphaComponent);
-                buffer.put(alphaComponent);
-                buffer.put(alphaComponent);
-                buffer.put(alphaComponent);
+     * @throws IllegalArgumentException if the font file cannot be parsed
+     */
+    private void loadFont() {
+
+        fontData = UtilityTool.ioResourceToByteBuffer(filePath, 64 * 1024);
+
+        if (!stbtt_InitFont(fontInfo, fontData)) {
+
+            throw new IllegalArgumentException("Failed to parse font loaded from " + filePath);
+        }
+        scale = stbtt_ScaleForMappingEmToPixels(fontInfo, fontSize);                                                    // Font size is the height of the em square, as with point sizes.
+        name = readName();
+
+        // Measure vertical metrics.
+        int[] fontAscent = new int[1];
+        int[] fontDescent = new int[1];
+        int[] fontLineGap = new int[1];
+        stbtt_GetFontVMetrics(fontInfo, fontAscent, fontDescent, fontLineGap);
+        ascent = Math.round(fontAscent[0] * scale);
+        descent = Math.round(-fontDescent[0] * scale);                                                                  // Font descent is negative (below baseline).
+        lineHeight = ascent + descent + Math.round(fontLineGap[0] * scale);
+
+        // Measure kerning between characters rasterized upon construction.
+        int numInitial = lastInitialCharacter - firstInitialCharacter + 1;
+        initialKerning = new float[numInitial * numInitial];
+        for (int first = 0; first < numInitial; first++) {
+            for (int second = 0; second < numInitial; second++) {
+                initialKerning[first * numInitial + second] = stbtt_GetCodepointKernAdvance(fontInfo,
+                        firstInitialCharacter + first, firstInitialCharacter + second) * scale;
             }
         }
-        buffer.flip();
 
-        // Upload image to GPU.
-        textureId = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, textureId);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, image.getWidth(), image.getHeight(),
-                0, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
-        buffer.clear();                                                                                                 // Clear allocated memory for buffer.
+        if (atlasMode == FontAtlasMode.SDF) {
+
+            field = new SignedDistanceField(sdfSpread, sdfDownsample);
+            cellHeight = alignToTexels(lineHeight + 2 * sdfSpread);
+        } else {
+
+            cellHeight = lineHeight;
+        }
     }
 
 
     /**
-     * Retrieves a character from this font.
+     * Reads the full name of this font (ex. "Arimo Bold") from its font file.
      *
-     * @param codepoint character to retrieve (!, A, B, C, etc.)
-     * @return character
+     * @return name, or the font file path if the font file does not contain one
      */
-    public CharInfo getCharacter(int codepoint) {
+    private String readName() {
 
-        return charMap.getOrDefault(codepoint, new CharInfo(0, 0, 0, 0, 0));
+        ByteBuffer nameString = stbtt_GetFontNameString(fontInfo, STBTT_PLATFORM_ID_MICROSOFT,
+                STBTT_MS_EID_UNICODE_BMP, STBTT_MS_LANG_ENGLISH, 4);                                                    // Name ID 4 is the full font name.
+        return (nameString != null) ? StandardCharsets.UTF_16BE.decode(nameString).toString() : filePath;
     }
 
 
     /**
-     * Loads and registers this font to be used by Java.
+     * Serializes all pending atlas pages of this font so that they can be cached.
      *
-     * @return font
+     * @return serialized atlas
      */
-    private Font registerFont() {
+    private ByteBuffer serializeAtlas() {
+
+        int numCharacters = 0;
+        for (CharInfo charInfo : charMap.values()) {
+            if (charInfo != missingCharacter) {
+                numCharacters++;
+            }
+        }
+        int pageBytes = (pageSize / getDownsample()) * (pageSize / getDownsample());
+        int size = (6 * Integer.BYTES) + (numCharacters * 7 * Integer.BYTES) + (pendingPages.size() * pageBytes);
+        ByteBuffer contents = ByteBuffer.allocate(size);
+        contents.putInt(cacheMagic);
+        contents.putInt(pendingPages.size());
+        contents.putInt(cursorPage);
+        contents.putInt(cursorX);
+        contents.putInt(cursorY);
+        contents.putInt(numCharacters);
+        for (Map.Entry<Integer, CharInfo> entry : charMap.entrySet()) {
+            CharInfo charInfo = entry.getValue();
+            if (charInfo != missingCharacter) {
+                contents.putInt(entry.getKey());
+                contents.putInt(charInfo.getSourceX());
+                contents.putInt(charInfo.getSourceY());
+                contents.putInt(charInfo.getWidth());
+                contents.putInt(charInfo.getHeight());
+                contents.putInt(charInfo.getDescent());
+                contents.putInt(charInfo.getPage());
+            }
+        }
+        for (ByteBuffer texels : pendingPages) {
+            contents.put(texels.duplicate());
+        }
+        contents.flip();
+        return contents;
+    }
 
-        try (InputStream is = getClass().getResourceAsStream(filePath)) {
 
-            GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-            Font font = Font.createFont(Font.TRUETYPE_FONT, is);
-            ge.registerFont(font);
-            return font;
+    /**
+     * Loads a cached atlas into this font and uploads its pages to the GPU.
+     * Page texels are uploaded straight from the cached contents.
+     *
+     * @param contents contents of the cached atlas, or null if none is cached
+     * @return whether the atlas was loaded (false if there was none or it was corrupt)
+     */
+    private boolean loadCachedAtlas(ByteBuffer contents) {
 
-        } catch (Exception e) {
+        if (contents == null) {
 
-            e.printStackTrace();
-            // TODO : Throw specific exception here.
+            return false;
         }
-        return null;
+
+        try {
+
+            if (contents.getInt() != cacheMagic) {
+
+                return false;
+            }
+            int numPages = contents.getInt();
+            int cachedCursorPage = contents.getInt();
+            int cachedCursorX = contents.getInt();
+            int cachedCursorY = contents.getInt();
+            int numCharacters = contents.getInt();
+
+            for (int i = 0; i < numCharacters; i++) {
+
+                int codepoint = contents.getInt();
+                CharInfo charInfo = new CharInfo(contents.getInt(), contents.getInt(),
+                        contents.getInt(), contents.getInt(), contents.getInt(), contents.getInt());
+                charInfo.calculateTextureCoordinates(pageSize, pageSize);
+                charMap.put(codepoint, charInfo);
+            }
+            int pageBytes = (pageSize / getDownsample()) * (pageSize / getDownsample());
+
+            if ((numPages < 1) || (cachedCursorPage != numPages - 1)
+                    || (contents.remaining() != numPages * pageBytes)) {
+
+                charMap.clear();
+                return false;
+            }
+
+            for (int page = 0; page < numPages; page++) {
+
+                pageTextureIds.add(uploadPage(contents.slice(contents.position() + page * pageBytes, pageBytes)));
+            }
+            cursorPage = cachedCursorPage;
+            cursorX = cachedCursorX;
+            cursorY = cachedCursorY;
+            return true;
+
+        } catch (RuntimeException e) {                                                                                  // Truncated or otherwise corrupt atlas.
+
+            charMap.clear();
+            return false;
+        }
+    }
+
+
+    /**
+     * Uploads a single-channel atlas page to the GPU as a new single-channel (GL_R8) texture.
+     * The font shader reads coverage or distance from the red channel.
+     *
+     * @param texels texels of page (0-255), row by row, from position to limit in direct memory
+     * @return texture ID of page
+     */
+    private int uploadPage(ByteBuffer texels) {
+
+        int pageTexels = pageSize / getDownsample();
+
+        // Upload image to GPU.
+        int textureId = glGenTextures();
+        GLState.bindTexture(GL_TEXTURE_2D, textureId);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);                                                                          // Rows of single-channel pages are not necessarily four-byte aligned.
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_R8, pageTexels, pageTexels,
+                0, GL_RED, GL_UNSIGNED_BYTE, texels);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);                                                                          // Restore default.
+        return textureId;
+    }
+
+
+    /**
+     * Rounds a size (in pixels at native font size) up to a whole number of atlas texels.
+     *
+     * @param size size
+     * @return rounded size
+     */
+    private int alignToTexels(int size) {
+
+        int downsample = getDownsample();
+        return ((size + downsample - 1) / downsample) * downsample;
     }
 
 
@@ -218,7 +674,19 @@ public class CFont {
         return name;
     }
 
-    public int getTextureId() {
-        return textureId;
+    public int getTextureId(int page) {
+        return pageTextureIds.get(page);
+    }
+
+    public int getNumPages() {
+        return pageTextureIds.size();
+    }
+
+    public FontAtlasMode getAtlasMode() {
+        return atlasMode;
+    }
+
+    public int getDownsample() {
+        return (atlasMode == FontAtlasMode.SDF) ? sdfDownsample : 1;
     }
 }
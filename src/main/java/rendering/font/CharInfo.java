@@ -33,6 +33,11 @@ public class CharInfo {
      */
     private final int descent;
 
+    /**
+     * Atlas page of the parent font that this character is packed into.
+     */
+    private final int page;
+
     /**
      * Coordinates of this character on the parent font texture.
      * Note that texture coordinates are normalized from zero to one, where (0, 0) is the bottom-left corner of the
@@ -60,11 +65,27 @@ public class CharInfo {
      * @param descent character descent
      */
     public CharInfo(int sourceX, int sourceY, int width, int height, int descent) {
+        this(sourceX, sourceY, width, height, descent, 0);
+    }
+
+
+    /**
+     * Constructs a CharInfo instance.
+     *
+     * @param sourceX raw character coordinate on original generated parent font image
+     * @param sourceY raw character coordinate on original generated parent font image
+     * @param width character width
+     * @param height character height
+     * @param descent character descent
+     * @param page atlas page of the parent font that this character is packed into
+     */
+    public CharInfo(int sourceX, int sourceY, int width, int height, int descent, int page) {
         this.sourceX = sourceX;
         this.sourceY = sourceY;
         this.width = width;
         this.height = height;
         this.descent = descent;
+        this.page = page;
     }
 
 
@@ -108,6 +129,10 @@ public class CharInfo {
         return descent;
     }
 
+    public int getPage() {
+        return page;
+    }
+
     public Vector2f[] getTextureCoords() {
         return textureCoords;
     }
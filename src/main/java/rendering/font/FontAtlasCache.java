@@ -0,0 +1,170 @@
+package rendering.font;
+
+import org.lwjgl.Version;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * This class stores finished font atlases in a directory on disk so that they can be reused between launches instead
+ * of being generated again.
+ * Each atlas is stored in its own file named after a hash of everything it was generated from (the font file, the
+ * generation parameters, and the LWJGL version, since rasterization may vary between versions of its stb_truetype).
+ * Any change to these produces a different name, so a stale atlas is never read.
+ * Cached atlases are memory-mapped when read, so their contents are paged in straight from disk without being copied.
+ */
+public class FontAtlasCache {
+
+    // FIELDS
+    /**
+     * Version of the layout of cached atlases.
+     * This is included in every hash, so changing it invalidates all existing cached atlases.
+     */
+    private static final int formatVersion = 3;
+
+    /**
+     * File extension of cached atlases.
+     */
+    private static final String extension = ".atlas";
+
+    /**
+     * Directory that cached atlases are stored in.
+     */
+    private final Path directory;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a FontAtlasCache instance.
+     * The directory is created when the first atlas is written, if it does not already exist.
+     *
+     * @param directory directory to store cached atlases in
+     */
+    public FontAtlasCache(Path directory) {
+        this.directory = directory;
+    }
+
+
+    // METHODS
+    /**
+     * Computes the key that an atlas is cached under.
+     *
+     * @param fontFile contents of the font file that the atlas is generated from, from its position to its limit (left
+     *                 unchanged)
+     * @param parameters every parameter that affects the contents of the atlas (ex. font size)
+     * @return key
+     */
+    public String key(ByteBuffer fontFile, int... parameters) {
+
+        try {
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(fontFile.duplicate());
+            ByteBuffer header = ByteBuffer.allocate((parameters.length + 1) * Integer.BYTES);
+            header.putInt(formatVersion);
+            for (int parameter : parameters) {
+                header.putInt(parameter);
+            }
+            digest.update(header.array());
+            digest.update(Version.getVersion().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+
+        } catch (NoSuchAlgorithmException e) {
+
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException("SHA-256 is unavailable", e);
+        }
+    }
+
+
+    /**
+     * Reads a cached atlas.
+     *
+     * @param key key that the atlas is cached under
+     * @return read-only memory-mapped contents of the atlas, or null if no atlas is cached under the key or it could
+     * not be read
+     */
+    public ByteBuffer read(String key) {
+
+        Path file = directory.resolve(key + extension);
+
+        if (!Files.isRegularFile(file)) {
+
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());                                       // Mapping remains valid after the channel is closed.
+
+        } catch (IOException e) {
+
+            System.err.println("Failed to read cached font atlas '" + file + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+
+    /**
+     * Writes an atlas to this cache, replacing any atlas already cached under the same key.
+     * The atlas is written to a temporary file first and then moved into place, so an interrupted write never leaves
+     * a partial atlas behind.
+     * Failing to write is not fatal; the atlas will simply be generated again next launch.
+     *
+     * @param key key to cache the atlas under
+     * @param contents contents of the atlas, from its position to its limit
+     */
+    public void write(String key, ByteBuffer contents) {
+
+        Path file = directory.resolve(key + extension);
+        Path temporary = null;
+
+        try {
+
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, key, ".tmp");
+
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+            }
+
+            try {
+
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } catch (IOException e) {
+
+            System.err.println("Failed to cache font atlas '" + file + "': " + e.getMessage());
+
+            if (temporary != null) {
+
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+
+    // GETTERS
+    public Path getDirectory() {
+        return directory;
+    }
+}
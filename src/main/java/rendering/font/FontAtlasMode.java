@@ -0,0 +1,20 @@
+package rendering.font;
+
+/**
+ * This enum defines the ways the glyphs of a font can be stored in its atlas texture.
+ */
+public enum FontAtlasMode {
+
+    /**
+     * Antialiased coverage of each glyph rasterized at the native font size.
+     * Text is crisp near native size, but the atlas is large, and text drawn much smaller or larger than native size
+     * aliases or blurs.
+     */
+    BITMAP,
+
+    /**
+     * Signed distance to the outline of each glyph, stored at a fraction of the native font size.
+     * The outline is reconstructed per pixel in the font shader, so one small atlas draws crisp text at any scale.
+     */
+    SDF
+}
@@ -1,23 +1,33 @@
 package rendering.font;
 
 import core.GamePanel;
-import org.joml.Vector3f;
+import rendering.GLState;
 import rendering.Shader;
+import rendering.buffer.PackedVertex;
+import rendering.buffer.QuadIndexBuffer;
+import rendering.buffer.VertexUpload;
 import utility.AssetPool;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
 import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
 import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
 
 /**
  * This class holds a batch of characters to be sent to the GPU and rendered in a single call.
  */
 public class FontBatch {
 
+    /*
+     * Vertex in Vertex Array
+     * ======================
+     * Position         Color                   Texture coordinates
+     * float, float,    ubyte x 4 (packed),     ushort, ushort
+     */
+
     // FIELDS
     private final GamePanel gp;
 
@@ -27,12 +37,12 @@ public class FontBatch {
     private final int positionSize = 2;
 
     /**
-     * Defines four color floats in the vertex array for each vertex.
+     * Defines four color bytes (normalized when read) in the vertex array for each vertex.
      */
-    private final int colorSize = 3;
+    private final int colorSize = 4;
 
     /**
-     * Defines two texture coordinate floats in the vertex array for each vertex.
+     * Defines two texture coordinate shorts (normalized when read) in the vertex array for each vertex.
      * Note that a texture is not necessarily needed with texture coordinates.
      * Texture coordinates describe points within the quad.
      */
@@ -45,17 +55,17 @@ public class FontBatch {
     private final int positionOffset = 0;
 
     /**
-     * Defines the offset (in bytes) of the start of the color floats in the vertex array for each vertex.
+     * Defines the offset (in bytes) of the start of the color bytes in the vertex array for each vertex.
      * Here, the color starts after the position in a vertex definition, so it has an offset determined by the position.
      */
     private final int colorOffset = positionOffset + positionSize * Float.BYTES;
 
     /**
-     * Defines the offset (in bytes) of the start of the texture coordinate floats in the vertex array for each vertex.
+     * Defines the offset (in bytes) of the start of the texture coordinate shorts in the vertex array for each vertex.
      * Here, the texture coordinates start after the color in a vertex definition, so it has an offset determined by the
      * color.
      */
-    private final int textureCoordsOffset = colorOffset + colorSize * Float.BYTES;
+    private final int textureCoordsOffset = colorOffset + colorSize * Byte.BYTES;
 
 
     /**
@@ -64,6 +74,13 @@ public class FontBatch {
      */
     private final int maxBatchSize = 100;
 
+    /**
+     * Number of flushes per frame that the vertex upload of this batch is sized for.
+     * Batches flush every 25 characters, so this covers 1600 characters per frame without the upload waiting on draws
+     * issued earlier in the same frame.
+     */
+    private final int flushesPerFrame = 64;
+
     /**
      * Actual number of vertices added to this batch (vertex array) thus far.
      */
@@ -71,34 +88,40 @@ public class FontBatch {
 
     /**
      * Total number of floats in each vertex of the vertex array.
+     * Packed attributes are counted by the number of floats they occupy, so a vertex is 16 bytes.
      */
-    private final int vertexSize = 7;
+    private final int vertexSize = 4;
 
     /**
      * Vertex array.
      * Note that this allows us to store a number of quads equal to the maximum batch size divided by four, since each
      * quad contains four vertices.
      * Each character to render requires a quad.
+     * This is a byte view of the memory provided by the vertex upload, which vertices are written straight into.
+     * It is null until the first character is added after a flush.
+     */
+    private ByteBuffer vertices;
+
+    /**
+     * Vertex array object ID.
      */
-    private final float[] vertices = new float[maxBatchSize * vertexSize];
+    private int vaoId;
 
     /**
-     * Base indices for generating a quad.
+     * Vertex upload that vertices are uploaded through.
      */
-    private final int[] indices = {
-            0, 1, 3,
-            1, 2, 3
-    };
+    private VertexUpload vertexUpload;
 
     /**
-     * Vertex array object ID.
+     * Number of vertices in this batch when it was last rendered.
      */
-    private int vaoId;
+    private int previousNumVertices;
 
     /**
-     * Vertex buffer object ID.
+     * Content hash of the vertices of this batch when it was last rendered.
+     * If the same vertices are rendered again (ex. static text drawn every frame), they are not uploaded again.
      */
-    private int vboId;
+    private long previousHash = VertexUpload.NO_HASH;
 
     /**
      * Shader attached to this batch.
@@ -111,6 +134,12 @@ public class FontBatch {
      */
     private CFont font;
 
+    /**
+     * Atlas page of the active font that all characters in this batch are packed into.
+     * A batch only ever draws from a single page, so it is flushed whenever a character on a different page is added.
+     */
+    private int page;
+
 
     // CONSTRUCTOR
     /**
@@ -135,27 +164,29 @@ public class FontBatch {
 
 
     /**
-     * Adds a string of character to this batch.
+     * Adds a range of characters to this batch as a string.
+     * Consecutive characters are kerned.
+     * Nothing is allocated.
      *
-     * @param text text to render
+     * @param text array containing text to render
+     * @param start index of first character to render (inclusive)
+     * @param end index of last character to render (exclusive)
      * @param x x-coordinate (leftmost)
      * @param y y-coordinate (topmost)
      * @param scale scale factor compared to native font size
-     * @param color color (r, g, b)
+     * @param rgba color packed as 0xRRGGBBAA
      */
-    public void addString(String text, int x, int y, float scale, Vector3f color) {
+    public void addString(char[] text, int start, int end, float x, float y, float scale, int rgba) {
 
-        for (int i = 0; i < text.length(); i++) {                                                                       // Add each character from the string to the batch, one at a time.
+        for (int i = start; i < end; i++) {                                                                             // Add each character from the string to the batch, one at a time.
 
-            char c = text.charAt(i);
-            CharInfo charInfo = font.getCharacter(c);
-
-            if (charInfo.getWidth() == 0) {
+            CharInfo charInfo = font.getCharacter(text[i]);
+            addCharacter(x, y, scale, charInfo, rgba);                                                                  // Add character to batch.
+            x += charInfo.getWidth() * scale;                                                                           // Prepare for next character in string.
 
-                // TODO : Log error here.
+            if (i + 1 < end) {
+                x += font.getKerning(text[i], text[i + 1]) * scale;
             }
-            addCharacter(x, y, scale, charInfo, color);                                                                 // Add character to batch.                                                    // Adds character to batch.
-            x += charInfo.getWidth() * scale;                                                                           // Prepare for next character in string.
         }
     }
 
@@ -167,18 +198,20 @@ public class FontBatch {
      * @param y y-coordinate (topmost)
      * @param scale sale factor compared to native font size
      * @param charInfo character data
-     * @param color color (r, g, b)
+     * @param rgba color packed as 0xRRGGBBAA
      */
-    private void addCharacter(float x, float y, float scale, CharInfo charInfo, Vector3f color) {
+    private void addCharacter(float x, float y, float scale, CharInfo charInfo, int rgba) {
 
-        if (numVertices >= maxBatchSize) {
+        if ((numVertices >= maxBatchSize) || ((numVertices > 0) && (charInfo.getPage() != page))) {
 
             flush();                                                                                                    // Flush batch (i.e., render then clear) to start fresh.
         }
-        float r = color.x / 255;                                                                                        // Extract red information.
-        float g = color.y / 255;                                                                                        // Extract green information.
-        float b = color.z / 255;                                                                                        // Extract blue information.
+        page = charInfo.getPage();
 
+        if (vertices == null) {
+
+            vertices = vertexUpload.asBytes(vertexUpload.begin());                                                      // Retrieve memory to write vertices into.
+        }
         float x0 = x;                                                                                                   // Top-left corner (remember that positive y-direction is defined as down in this application).
         float y0 = y;                                                                                                   // ^^^
         float x1 = x + (scale * charInfo.getWidth());                                                                   // Bottom-right corner (remember that positive y-direction is defined as down in this application).
@@ -189,81 +222,89 @@ public class FontBatch {
         float ux1 = charInfo.getTextureCoords()[1].x;
         float uy1 = charInfo.getTextureCoords()[0].y;
 
-        int index = numVertices * 7;                                                                                    // First vertex with position, color, and texture coordinates; seven floats per vertex.
-        vertices[index] = x1;                                                                                           // Position (X).
-        vertices[index + 1] = y0;                                                                                       // Position (Y).
-        vertices[index + 2] = r;                                                                                        // Color (red).
-        vertices[index + 3] = g;                                                                                        // Color (green).
-        vertices[index + 4] = b;                                                                                        // Color (blue).
-        vertices[index + 5] = ux1;                                                                                      // Texture coordinate (X).
-        vertices[index + 6] = uy0;                                                                                      // Texture coordinate (Y).
-
-        index += 7;                                                                                                     // Second vertex with position, color, and texture coordinates.
-        vertices[index] = x1;
-        vertices[index + 1] = y1;
-        vertices[index + 2] = r;
-        vertices[index + 3] = g;
-        vertices[index + 4] = b;
-        vertices[index + 5] = ux1;
-        vertices[index + 6] = uy1;
-
-        index += 7;                                                                                                     // Third vertex with position, color, and texture coordinates.
-        vertices[index] = x0;
-        vertices[index + 1] = y1;
-        vertices[index + 2] = r;
-        vertices[index + 3] = g;
-        vertices[index + 4] = b;
-        vertices[index + 5] = ux0;
-        vertices[index + 6] = uy1;
-
-        index += 7;                                                                                                     // Fourth vertex with position, color, and texture coordinates.
-        vertices[index] = x0;
-        vertices[index + 1] = y0;
-        vertices[index + 2] = r;
-        vertices[index + 3] = g;
-        vertices[index + 4] = b;
-        vertices[index + 5] = ux0;
-        vertices[index + 6] = uy0;
+        short u0 = PackedVertex.unorm16(ux0);
+        short v0 = PackedVertex.unorm16(uy0);
+        short u1 = PackedVertex.unorm16(ux1);
+        short v1 = PackedVertex.unorm16(uy1);
+
+        int offset = numVertices * vertexSize * Float.BYTES;                                                            // First vertex with position, color, and texture coordinates.
+        putVertex(offset, x1, y0, rgba, u1, v0);
+
+        offset += vertexSize * Float.BYTES;                                                                             // Second vertex with position, color, and texture coordinates.
+        putVertex(offset, x1, y1, rgba, u1, v1);
+
+        offset += vertexSize * Float.BYTES;                                                                             // Third vertex with position, color, and texture coordinates.
+        putVertex(offset, x0, y1, rgba, u0, v1);
+
+        offset += vertexSize * Float.BYTES;                                                                             // Fourth vertex with position, color, and texture coordinates.
+        putVertex(offset, x0, y0, rgba, u0, v0);
 
         numVertices += 4;                                                                                               // Four vertices (one character) have now been added.
     }
 
 
+    /**
+     * Writes a single packed vertex.
+     *
+     * @param offset offset (in bytes) of the vertex within the vertex array
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param rgba color packed as 0xRRGGBBAA
+     * @param u texture coordinate (X) as a normalized unsigned short
+     * @param v texture coordinate (Y) as a normalized unsigned short
+     */
+    private void putVertex(int offset, float x, float y, int rgba, short u, short v) {
+
+        vertices.putFloat(offset + positionOffset, x);                                                                  // Position (X).
+        vertices.putFloat(offset + positionOffset + Float.BYTES, y);                                                    // Position (Y).
+        PackedVertex.putColor(vertices, offset + colorOffset, rgba);                                                    // Color (red, green, blue, alpha).
+        vertices.putShort(offset + textureCoordsOffset, u);                                                             // Texture coordinate (X).
+        vertices.putShort(offset + textureCoordsOffset + Short.BYTES, v);                                               // Texture coordinate (Y).
+    }
+
+
     /**
      * Renders all characters in this batch.
      */
     private void render() {
 
-        // Clear buffer on GPU.
-        glBindBuffer(GL_ARRAY_BUFFER, vboId);
-
-        // Upload CPU contents (vertex data).
-        glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
+        // Make written vertices available to the GPU, unless they are identical to the vertices last rendered.
+        long hash = (numVertices == previousNumVertices) ? previousHash : VertexUpload.NO_HASH;
+        previousHash = vertexUpload.markWritten(vertices, 0, numVertices * vertexSize, hash);
+        previousNumVertices = numVertices;
+        int uploadOffset = vertexUpload.end();
 
         // Draw buffer that was just uploaded.
         shader.use();
-        glActiveTexture(GL_TEXTURE0);
-        glBindTexture(GL_TEXTURE_2D, font.getTextureId());
+        GLState.bindTexture(0, GL_TEXTURE_2D, font.getTextureId(page));
         shader.uploadTexture("uFontTexture", 0);
+        shader.uploadInt("uDistanceField", (font.getAtlasMode() == FontAtlasMode.SDF) ? 1 : 0);
         shader.uploadMat4f("uProjection", gp.getSystemCamera().getProjectionMatrix());
         shader.uploadMat4f("uView", gp.getSystemCamera().getViewMatrix());
-        glBindVertexArray(vaoId);
-        glDrawElements(GL_TRIANGLES, (numVertices * 6), GL_UNSIGNED_INT, 0);
+        GLState.bindVertexArray(vaoId);
+        glDrawElementsBaseVertex(GL_TRIANGLES, (numVertices / 4) * 6, GL_UNSIGNED_INT, 0,                               // Six indices per quad; stale vertices past the last character are never drawn.
+                uploadOffset / vertexSize);
+        vertexUpload.fence();                                                                                           // Written memory must not be reused until the GPU has finished drawing it.
+    }
+
 
-        // Unbind after drawing.
-        glBindVertexArray(0);
-        shader.detach();
-        glBindTexture(GL_TEXTURE_2D, 0);
+    /**
+     * Marks that this batch has been flushed for the last time this frame.
+     */
+    public void endFrame() {
+
+        vertexUpload.endFrame();
     }
 
 
     /**
      * Clears this batch of all characters, resetting it to its default initialized state.
      * Note that the set font is retained.
+     * Note that vertices are not zeroed, since only vertices written after the next flush are ever drawn.
      */
     private void clear() {
 
-        Arrays.fill(vertices, 0);
+        vertices = null;
         numVertices = 0;
     }
 
@@ -277,45 +318,25 @@ public class FontBatch {
 
         // Generate and bind a vertex array object.
         vaoId = glGenVertexArrays();
-        glBindVertexArray(vaoId);
+        GLState.bindVertexArray(vaoId);
 
         // Allocate space for vertices.
-        vboId = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        glBufferData(GL_ARRAY_BUFFER, vertexSize * maxBatchSize * Float.BYTES, GL_DYNAMIC_DRAW);
+        vertexUpload = gp.getUploadMode().create(vertexSize * maxBatchSize, vertexSize, flushesPerFrame);
 
-        // Generate and bind element buffer object.
-        generateEbo();
+        // Bind shared quad indices buffer.
+        QuadIndexBuffer.bind(maxBatchSize / 4);                                                                         // Four vertices per quad.
 
         // Enable buffer attribute pointers.
         int stride = vertexSize * Float.BYTES;                                                                          // Size of the vertex array in bytes.
         glVertexAttribPointer(0, positionSize, GL_FLOAT, false, stride, positionOffset);
         glEnableVertexAttribArray(0);
-        glVertexAttribPointer(1, colorSize, GL_FLOAT, false, stride, colorOffset);
+        glVertexAttribPointer(1, colorSize, GL_UNSIGNED_BYTE, true, stride, colorOffset);
         glEnableVertexAttribArray(1);
-        glVertexAttribPointer(2, textureCoordsSize, GL_FLOAT, false, stride, textureCoordsOffset);
+        glVertexAttribPointer(2, textureCoordsSize, GL_UNSIGNED_SHORT, true, stride, textureCoordsOffset);
         glEnableVertexAttribArray(2);
     }
 
 
-    /**
-     * Generates an element buffer object large enough to hold the number of vertices specified by the batch size.
-     */
-    private void generateEbo() {
-
-        int elementSize = maxBatchSize * 3;                                                                                // Multiply by three since there are three indices per triangle.
-        int[] elementBuffer = new int[elementSize];
-
-        for (int i = 0; i < elementSize; i++) {
-
-            elementBuffer[i] = indices[(i % 6)] + ((i / 6) * 4);                                                        // Use pattern set by indices array.
-        }
-        int eboId = glGenBuffers();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);                                                                   // Bind array.
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, elementBuffer, GL_STATIC_DRAW);                                           // Buffer array to GPU.
-    }
-
-
     // GETTER
     public String getFont() {
         if (font != null) {
@@ -0,0 +1,273 @@
+package rendering.font;
+
+/**
+ * This class converts antialiased glyph coverage into a downsampled signed distance field.
+ * Distances are computed exactly (Felzenszwalb and Huttenlocher's linear-time Euclidean distance transform) at the
+ * resolution glyphs were rasterized at, using partial coverage along edges for sub-pixel precision, then averaged down
+ * to the resolution of the atlas.
+ * Each atlas texel stores 0.5 on the outline, rising to 1 deep inside and falling to 0 far outside, so that the font
+ * shader can reconstruct a sharp outline at any scale with bilinear filtering alone.
+ * Scratch space is retained between regions, so converting many glyphs does not allocate once it is large enough.
+ */
+public class SignedDistanceField {
+
+    // FIELDS
+    /**
+     * Squared distance used for pixels with no nearby feature.
+     */
+    private static final float infinity = 1e20f;
+
+    /**
+     * Distance (in rasterized pixels) from the outline at which the field saturates.
+     */
+    private final int spread;
+
+    /**
+     * Number of rasterized pixels along each side of a single atlas texel.
+     */
+    private final int downsample;
+
+    /**
+     * Squared distance of each pixel of the current region to the nearest pixel inside the glyph.
+     */
+    private float[] outer = new float[0];
+
+    /**
+     * Squared distance of each pixel of the current region to the nearest pixel outside the glyph.
+     */
+    private float[] inner = new float[0];
+
+    /**
+     * Scratch space holding a single row or column while transforming.
+     */
+    private float[] line = new float[0];
+
+    /**
+     * Scratch space holding the transformed row or column.
+     */
+    private float[] transformed = new float[0];
+
+    /**
+     * Positions of the parabolas of the lower envelope while transforming.
+     */
+    private int[] parabolas = new int[0];
+
+    /**
+     * Boundaries between the parabolas of the lower envelope while transforming.
+     */
+    private float[] boundaries = new float[0];
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a SignedDistanceField instance.
+     *
+     * @param spread distance (in rasterized pixels) from the outline at which the field saturates
+     * @param downsample number of rasterized pixels along each side of a single atlas texel
+     */
+    public SignedDistanceField(int spread, int downsample) {
+        this.spread = spread;
+        this.downsample = downsample;
+    }
+
+
+    // METHODS
+    /**
+     * Converts a region of rasterized coverage into the matching region of an atlas.
+     * Coverage outside of the rasterized image counts as empty.
+     * The region must be aligned to whole atlas texels, so its position and size must be multiples of the downsample
+     * factor.
+     *
+     * @param coverage coverage of every rasterized pixel (0-255), row by row
+     * @param coverageWidth width of the rasterized image
+     * @param coverageHeight height of the rasterized image
+     * @param left x-coordinate of the region in the rasterized image (leftmost)
+     * @param top y-coordinate of the region in the rasterized image (topmost)
+     * @param width width of the region in rasterized pixels
+     * @param height height of the region in rasterized pixels
+     * @param atlas atlas texels (0-255), row by row
+     * @param atlasWidth width of the atlas
+     */
+    public void convert(byte[] coverage, int coverageWidth, int coverageHeight, int left, int top, int width,
+                        int height, byte[] atlas, int atlasWidth) {
+
+        ensureCapacity(width, height);
+
+        // Seed both grids from coverage.
+        for (int y = 0; y < height; y++) {
+
+            int sourceY = top + y;
+
+            for (int x = 0; x < width; x++) {
+
+                int sourceX = left + x;
+                float alpha = 0;
+
+                if ((sourceX >= 0) && (sourceX < coverageWidth) && (sourceY >= 0) && (sourceY < coverageHeight)) {
+
+                    alpha = (coverage[sourceY * coverageWidth + sourceX] & 0xFF) / 255.0f;
+                }
+                int i = y * width + x;
+
+                if (alpha >= 1) {
+
+                    outer[i] = 0;
+                    inner[i] = infinity;
+                } else if (alpha <= 0) {
+
+                    outer[i] = infinity;
+                    inner[i] = 0;
+                } else {
+
+                    float edge = Math.max(0, 0.5f - alpha);                                                             // Partially covered pixels lie within half a pixel of the outline.
+                    outer[i] = edge * edge;
+                    edge = Math.max(0, alpha - 0.5f);
+                    inner[i] = edge * edge;
+                }
+            }
+        }
+        transform(outer, width, height);
+        transform(inner, width, height);
+
+        // Average signed distances over each texel and encode them.
+        float texelArea = downsample * downsample;
+
+        for (int texelY = 0; texelY < height / downsample; texelY++) {
+
+            for (int texelX = 0; texelX < width / downsample; texelX++) {
+
+                float sum = 0;
+
+                for (int y = texelY * downsample; y < (texelY + 1) * downsample; y++) {
+
+                    for (int x = texelX * downsample; x < (texelX + 1) * downsample; x++) {
+
+                        int i = y * width + x;
+                        sum += (float)(Math.sqrt(outer[i]) - Math.sqrt(inner[i]));                                      // Positive outside the glyph.
+                    }
+                }
+                float value = 0.5f - (sum / texelArea) / (2 * spread);
+                int encoded = Math.round(Math.max(0, Math.min(1, value)) * 255);
+                atlas[(top / downsample + texelY) * atlasWidth + (left / downsample + texelX)] = (byte)encoded;
+            }
+        }
+    }
+
+
+    /**
+     * Transforms a grid of squared feature distances into squared Euclidean distances to the nearest feature in place,
+     * by transforming every column, then every row.
+     *
+     * @param grid grid to transform, row by row
+     * @param width width of grid
+     * @param height height of grid
+     */
+    private void transform(float[] grid, int width, int height) {
+
+        for (int x = 0; x < width; x++) {
+
+            for (int y = 0; y < height; y++) {
+                line[y] = grid[y * width + x];
+            }
+            transformLine(height);
+            for (int y = 0; y < height; y++) {
+                grid[y * width + x] = transformed[y];
+            }
+        }
+
+        for (int y = 0; y < height; y++) {
+
+            System.arraycopy(grid, y * width, line, 0, width);
+            transformLine(width);
+            System.arraycopy(transformed, 0, grid, y * width, width);
+        }
+    }
+
+
+    /**
+     * Transforms a single row or column held in the line scratch space by computing the lower envelope of the
+     * parabolas rooted at each of its entries.
+     *
+     * @param length number of entries in the line
+     */
+    private void transformLine(int length) {
+
+        int k = 0;
+        parabolas[0] = 0;
+        boundaries[0] = -infinity;
+        boundaries[1] = infinity;
+
+        for (int q = 1; q < length; q++) {
+
+            float s = intersect(q, parabolas[k]);
+
+            while (s <= boundaries[k]) {
+
+                k--;
+                s = intersect(q, parabolas[k]);
+            }
+            k++;
+            parabolas[k] = q;
+            boundaries[k] = s;
+            boundaries[k + 1] = infinity;
+        }
+        k = 0;
+
+        for (int q = 0; q < length; q++) {
+
+            while (boundaries[k + 1] < q) {
+                k++;
+            }
+            int p = parabolas[k];
+            transformed[q] = (q - p) * (q - p) + line[p];
+        }
+    }
+
+
+    /**
+     * Computes where the parabolas rooted at two entries of the line scratch space intersect.
+     *
+     * @param q position of the first parabola
+     * @param p position of the second parabola
+     * @return position of the intersection
+     */
+    private float intersect(int q, int p) {
+
+        return (float)((((double)line[q] + q * q) - ((double)line[p] + p * p)) / (2.0 * (q - p)));                      // Doubles keep finite distances from being absorbed by infinite ones.
+    }
+
+
+    /**
+     * Grows scratch space if it cannot hold a region of the specified size.
+     *
+     * @param width width of region
+     * @param height height of region
+     */
+    private void ensureCapacity(int width, int height) {
+
+        if (outer.length < width * height) {
+
+            outer = new float[width * height];
+            inner = new float[width * height];
+        }
+        int length = Math.max(width, height);
+
+        if (line.length < length) {
+
+            line = new float[length];
+            transformed = new float[length];
+            parabolas = new int[length];
+            boundaries = new float[length + 1];
+        }
+    }
+
+
+    // GETTERS
+    public int getSpread() {
+        return spread;
+    }
+
+    public int getDownsample() {
+        return downsample;
+    }
+}
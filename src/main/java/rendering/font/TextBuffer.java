@@ -0,0 +1,83 @@
+package rendering.font;
+
+import rendering.FrameArena;
+
+/**
+ * This class stages strings to be rendered, storing their characters and properties in a frame arena.
+ * Each staged string is a record in the arena identified by its offset, so strings can be queued as render commands
+ * and added to a font batch whenever their turn comes, and staging text does not allocate once the arena is large
+ * enough.
+ * Staged strings are released together with everything else in the arena when it is reset, so they never need to be
+ * cleared.
+ */
+public class TextBuffer {
+
+    /*
+     * Record in Frame Arena
+     * =====================
+     * First character    Last character    Position       Scale    Color
+     * int,               int (excl.),      float, float   float    0xRRGGBBAA
+     */
+
+    // FIELDS
+    /**
+     * Total number of words in each record.
+     */
+    private static final int recordSize = 6;
+
+    /**
+     * Frame arena that strings are staged into.
+     */
+    private final FrameArena arena;
+
+
+    // CONSTRUCTOR
+    /**
+     * Constructs a TextBuffer instance.
+     *
+     * @param arena frame arena to stage strings into
+     */
+    public TextBuffer(FrameArena arena) {
+        this.arena = arena;
+    }
+
+
+    // METHODS
+    /**
+     * Stages a string.
+     * The characters are copied, so the text may be modified after this call.
+     *
+     * @param text text to stage
+     * @param x x-coordinate (leftmost)
+     * @param y y-coordinate (topmost)
+     * @param scale scale factor compared to native font size
+     * @param rgba color packed as 0xRRGGBBAA
+     * @return offset of the record of the staged string, valid until the arena is next reset
+     */
+    public int add(CharSequence text, float x, float y, float scale, int rgba) {
+
+        int start = arena.putCharacters(text);
+        int record = arena.allocate(recordSize);
+        arena.putInt(record, start);
+        arena.putInt(record + 1, start + text.length());
+        arena.putFloat(record + 2, x);
+        arena.putFloat(record + 3, y);
+        arena.putFloat(record + 4, scale);
+        arena.putInt(record + 5, rgba);
+        return record;
+    }
+
+
+    /**
+     * Adds a staged string to a font batch.
+     *
+     * @param record offset of the record of the staged string
+     * @param batch font batch to add the string to
+     */
+    public void addTo(int record, FontBatch batch) {
+
+        batch.addString(arena.getCharacters(), arena.getInt(record), arena.getInt(record + 1),
+                arena.getFloat(record + 2), arena.getFloat(record + 3), arena.getFloat(record + 4),
+                arena.getInt(record + 5));
+    }
+}
@@ -3,6 +3,7 @@ package utility;
 import rendering.Shader;
 import rendering.Spritesheet;
 import rendering.Texture;
+import rendering.TextureArray;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -29,6 +30,11 @@ public class AssetPool {
      */
     private static ArrayList<Spritesheet> spritesheets = new ArrayList<>();
 
+    /**
+     * List to store all array textures created to hold loaded textures.
+     */
+    private static ArrayList<TextureArray> textureArrays = new ArrayList<>();
+
 
     // METHODS
     /**
@@ -73,6 +79,29 @@ public class AssetPool {
     }
 
 
+    /**
+     * Returns an array texture with room for another texture of the specified size.
+     * If no such array texture exists yet, a new one will first be created and then returned.
+     *
+     * @param width texture width
+     * @param height texture height
+     * @return array texture
+     */
+    public static TextureArray getTextureArray(int width, int height) {
+
+        for (TextureArray textureArray : textureArrays) {
+
+            if ((textureArray.getWidth() == width) && (textureArray.getHeight() == height) && textureArray.hasRoom()) {
+
+                return textureArray;
+            }
+        }
+        TextureArray textureArray = new TextureArray(width, height);
+        textureArrays.add(textureArray);
+        return textureArray;
+    }
+
+
     /**
      * Loads a spritesheet into memory from file.
      * If the specified spritesheet is already loaded, then nothing will occur.
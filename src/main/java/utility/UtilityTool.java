@@ -51,6 +51,32 @@ public class UtilityTool {
     }
 
 
+    /**
+     * Parses a constant of an enum by name (case-insensitive).
+     *
+     * @param type enum to parse a constant of
+     * @param name name of constant (ex. "orphan"), or null
+     * @param fallback constant to return if the name is null or unrecognized
+     * @return constant
+     * @param <E> enum type
+     */
+    public static <E extends Enum<E>> E parseEnum(Class<E> type, String name, E fallback) {
+
+        if (name != null) {
+
+            for (E constant : type.getEnumConstants()) {
+
+                if (constant.name().equalsIgnoreCase(name.trim())) {
+
+                    return constant;
+                }
+            }
+            System.out.println("Unrecognized " + type.getSimpleName() + " '" + name + "'; using " + fallback + ".");
+        }
+        return fallback;
+    }
+
+
     /**
      * Resizes an existing ByteBuffer.
      *
@@ -3,19 +3,19 @@
 layout (location=0) in vec3 aPos;                            // Position attribute.
 layout (location=1) in vec4 aColor;                          // Color attribute.
 layout (location=2) in vec2 aTexCoords;                      // Texture position attribute.
-layout (location=3) in float aTexId;                         // Texture ID attribute.
+layout (location=3) in float aTexLayer;                      // Texture layer attribute (0 means no texture).
 
 uniform mat4 uProjection;
 uniform mat4 uView;
 
 out vec4 fColor;                                             // Going to fragment shader.
 out vec2 fTexCoords;
-out float fTexId;
+out float fTexLayer;
 
 void main() {
     fColor = aColor;                                         // Pass color to fragment shader.
     fTexCoords = aTexCoords;
-    fTexId = aTexId;
+    fTexLayer = aTexLayer;
     gl_Position = uProjection * uView * vec4(aPos, 1.0);     // Create a vec4 using aPos as first three elements, 1.0 as fourth.
 }
 
@@ -24,16 +24,15 @@ void main() {
 
 in vec4 fColor;                                              // Need an in for vec4 color.
 in vec2 fTexCoords;
-in float fTexId;
+in float fTexLayer;
 
-uniform sampler2D uTextures[8];                              // Limit to eight textures to sample from at once.
+uniform sampler2DArray uTextureArray;                        // Array texture containing all textures in the batch.
 
 out vec4 color;                                              // Tells output color.
 
 void main() {
-    if (fTexId > 0) {
-        int id = int(fTexId);
-        color = fColor * texture(uTextures[id], fTexCoords);
+    if (fTexLayer > 0) {
+        color = fColor * texture(uTextureArray, vec3(fTexCoords, fTexLayer - 1));
     } else {
         color = fColor;
     }
@@ -1,10 +1,10 @@
 #type vertex
 #version 330 core
 layout (location=0) in vec2 aPos;
-layout (location=1) in vec3 aColor;
+layout (location=1) in vec4 aColor;
 layout (location=2) in vec2 aTexCoords;
 
-out vec3 fColor;
+out vec4 fColor;
 out vec2 fTexCoords;
 
 uniform mat4 uProjection;
@@ -19,13 +19,22 @@ void main() {
 #type fragment
 #version 330 core
 
-in vec3 fColor;
+in vec4 fColor;
 in vec2 fTexCoords;
 
 uniform sampler2D uFontTexture;
+uniform int uDistanceField;
 
 out vec4 color;
 
 void main() {
-    color = vec4(fColor, 1) * texture(uFontTexture, fTexCoords); // Include 1 since alpha value wasn't manually provided.
+    if (uDistanceField == 1) {
+        // Reconstruct outline from signed distance (0.5 on outline), antialiased over roughly one screen pixel.
+        float distance = texture(uFontTexture, fTexCoords).r;
+        float width = fwidth(distance) * 0.7;
+        color = fColor * smoothstep(0.5 - width, 0.5 + width, distance);                                                // Premultiplied, as with coverage below.
+    } else {
+        // Single-channel atlas stores coverage in red channel.
+        color = fColor * texture(uFontTexture, fTexCoords).r;
+    }
 }
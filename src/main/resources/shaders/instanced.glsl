@@ -0,0 +1,43 @@
+#type vertex
+#version 330 core
+layout (location=1) in vec2 aPosition;                                                                                  // Position attribute from instance array (advances per instance).
+layout (location=2) in vec2 aScale;                                                                                     // Scale attribute from instance array.
+layout (location=3) in vec4 aColor;                                                                                     // Color attribute from instance array.
+layout (location=4) in vec4 aTexRect;                                                                                   // Texture coordinates (bottom-left, top-right) attribute from instance array.
+layout (location=5) in float aTexLayer;                                                                                 // Texture layer attribute from instance array (0 means no texture).
+
+uniform mat4 uProjection;
+uniform mat4 uView;
+
+out vec4 fColor;                                                                                                        // Send out to fragment shader.
+out vec2 fTexCoords;                                                                                                    // ^^^
+out float fTexLayer;                                                                                                    // ^^^
+
+void main() {
+    int index = gl_VertexID;                                                                                            // Quad indices are 0 to 3, clockwise from top-right, so the index picks the corner.
+    vec2 corner = vec2((index < 2) ? 1.0 : 0.0, ((index == 0) || (index == 3)) ? 1.0 : 0.0);                            // Build the unit quad corner from its index.
+    vec2 pos = aPosition + (corner * aScale);                                                                          // Build the corner of the quad from the instance position and scale.
+    fColor = aColor;                                                                                                    // Pass color to fragment shader.
+    fTexCoords = mix(aTexRect.xy, aTexRect.zw, corner);                                                                // Pick the texture coordinates matching this corner.
+    fTexLayer = aTexLayer;                                                                                              // Pass texture layer to fragment shader.
+    gl_Position = uProjection * uView * vec4(pos, 0.0, 1.0);
+}
+
+#type fragment
+#version 330 core
+
+in vec4 fColor;                                                                                                         // Take in from vertex shader.
+in vec2 fTexCoords;                                                                                                     // ^^^
+in float fTexLayer;                                                                                                     // ^^^
+
+uniform sampler2DArray uTextureArray;                                                                                   // Array texture containing all textures in the batch.
+
+out vec4 color;                                                                                                         // Tells output color.
+
+void main() {
+    if (fTexLayer > 0) {
+        color = fColor * texture(uTextureArray, vec3(fTexCoords, fTexLayer - 1));
+    } else {
+        color = fColor;
+    }
+}
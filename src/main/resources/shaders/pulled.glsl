@@ -0,0 +1,54 @@
+#type vertex
+#version 330 core
+
+uniform usamplerBuffer uRecords;                                                                                        // Buffer texture containing one record (two texels) per quad.
+uniform mat4 uProjection;
+uniform mat4 uView;
+
+out vec4 fColor;                                                                                                        // Send out to fragment shader.
+out vec2 fTexCoords;                                                                                                    // ^^^
+out float fTexLayer;                                                                                                    // ^^^
+
+const int cornerIndices[6] = int[6](3, 2, 0, 0, 2, 1);                                                                  // Same two triangles as the quad index buffer, corners clockwise from top-right.
+
+void main() {
+
+    // Six vertices are drawn per quad, so the vertex ID selects both the record and the corner.
+    int record = gl_VertexID / 6;
+    int index = cornerIndices[gl_VertexID % 6];
+    vec2 corner = vec2((index < 2) ? 1.0 : 0.0, ((index == 0) || (index == 3)) ? 1.0 : 0.0);                            // Build the unit quad corner from its index.
+
+    // Fetch record.
+    uvec4 bounds = texelFetch(uRecords, record * 2);                                                                    // Position (x, y) and scale (width, height) as float bits.
+    uvec4 properties = texelFetch(uRecords, record * 2 + 1);                                                            // Packed texture coordinates, color, and texture layer.
+
+    // Unpack record.
+    vec2 pos = uintBitsToFloat(bounds.xy) + (corner * uintBitsToFloat(bounds.zw));
+    vec2 texMin = vec2(properties.x & 0xFFFFu, properties.x >> 16) / 65535.0;                                           // Bottom-left texture coordinates.
+    vec2 texMax = vec2(properties.y & 0xFFFFu, properties.y >> 16) / 65535.0;                                           // Top-right texture coordinates.
+    uint rgba = properties.z;
+
+    fColor = vec4((rgba >> 24) & 0xFFu, (rgba >> 16) & 0xFFu, (rgba >> 8) & 0xFFu, rgba & 0xFFu) / 255.0;               // Pass color to fragment shader.
+    fTexCoords = mix(texMin, texMax, corner);                                                                           // Pick the texture coordinates matching this corner.
+    fTexLayer = float(properties.w);                                                                                    // Pass texture layer to fragment shader.
+    gl_Position = uProjection * uView * vec4(pos, 0.0, 1.0);
+}
+
+#type fragment
+#version 330 core
+
+in vec4 fColor;                                                                                                         // Take in from vertex shader.
+in vec2 fTexCoords;                                                                                                     // ^^^
+in float fTexLayer;                                                                                                     // ^^^
+
+uniform sampler2DArray uTextureArray;                                                                                   // Array texture containing all textures in the batch.
+
+out vec4 color;                                                                                                         // Tells output color.
+
+void main() {
+    if (fTexLayer > 0) {
+        color = fColor * texture(uTextureArray, vec3(fTexCoords, fTexLayer - 1));
+    } else {
+        color = fColor;
+    }
+}